@@ -53,11 +53,21 @@ public class ExpandableSwitchItem extends SwitchItem
   }
 
   public ExpandableSwitchItem(Context context, AttributeSet attrs) {
-    super(context, attrs);
-    final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SuwExpandableSwitchItem);
-    collapsedSummary = a.getText(R.styleable.SuwExpandableSwitchItem_suwCollapsedSummary);
-    expandedSummary = a.getText(R.styleable.SuwExpandableSwitchItem_suwExpandedSummary);
-    a.recycle();
+    this(obtainItemAttributes(context, attrs), true /* recycle */);
+  }
+
+  /** @see Item#Item(TypedArray) */
+  protected ExpandableSwitchItem(TypedArray a) {
+    this(a, false /* recycle */);
+  }
+
+  private ExpandableSwitchItem(TypedArray a, boolean recycle) {
+    super(a);
+    collapsedSummary = a.getText(R.styleable.SuwItem_suwCollapsedSummary);
+    expandedSummary = a.getText(R.styleable.SuwItem_suwExpandedSummary);
+    if (recycle) {
+      a.recycle();
+    }
   }
 
   @Override
@@ -58,10 +58,20 @@ public class SwitchItem extends Item implements CompoundButton.OnCheckedChangeLi
    * @param attrs The XML attributes defined on the item.
    */
   public SwitchItem(Context context, AttributeSet attrs) {
-    super(context, attrs);
-    final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SuwSwitchItem);
-    checked = a.getBoolean(R.styleable.SuwSwitchItem_android_checked, false);
-    a.recycle();
+    this(obtainItemAttributes(context, attrs), true /* recycle */);
+  }
+
+  /** @see Item#Item(TypedArray) */
+  protected SwitchItem(TypedArray a) {
+    this(a, false /* recycle */);
+  }
+
+  private SwitchItem(TypedArray a, boolean recycle) {
+    super(a);
+    checked = a.getBoolean(R.styleable.SuwItem_android_checked, false);
+    if (recycle) {
+      a.recycle();
+    }
   }
 
   /** Sets whether this item should be checked. */
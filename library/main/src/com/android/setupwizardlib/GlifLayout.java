@@ -32,6 +32,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewStub;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.ScrollView;
 import android.widget.TextView;
@@ -76,6 +77,21 @@ public class GlifLayout extends TemplateLayout {
 
   private boolean layoutFullscreen = true;
 
+  // Whether the background needs to be updated before the next draw
+  private boolean backgroundUpdatePending = false;
+
+  private final ViewTreeObserver.OnPreDrawListener backgroundUpdateListener =
+      new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+          getViewTreeObserver().removeOnPreDrawListener(this);
+          if (backgroundUpdatePending) {
+            updateBackground();
+          }
+          return true;
+        }
+      };
+
   public GlifLayout(Context context) {
     this(context, 0, 0);
   }
@@ -119,18 +135,16 @@ public class GlifLayout extends TemplateLayout {
     TypedArray a =
         getContext().obtainStyledAttributes(attrs, R.styleable.SuwGlifLayout, defStyleAttr, 0);
 
+    // Set the background attributes directly instead of calling their setters, so that the
+    // background is only created once.
     ColorStateList primaryColor = a.getColorStateList(R.styleable.SuwGlifLayout_suwColorPrimary);
     if (primaryColor != null) {
-      setPrimaryColor(primaryColor);
+      this.primaryColor = primaryColor;
+      getMixin(ProgressBarMixin.class).setColor(primaryColor);
     }
-
-    ColorStateList backgroundColor =
-        a.getColorStateList(R.styleable.SuwGlifLayout_suwBackgroundBaseColor);
-    setBackgroundBaseColor(backgroundColor);
-
-    boolean backgroundPatterned =
-        a.getBoolean(R.styleable.SuwGlifLayout_suwBackgroundPatterned, true);
-    setBackgroundPatterned(backgroundPatterned);
+    backgroundBaseColor = a.getColorStateList(R.styleable.SuwGlifLayout_suwBackgroundBaseColor);
+    backgroundPatterned = a.getBoolean(R.styleable.SuwGlifLayout_suwBackgroundPatterned, true);
+    updateBackground();
 
     final int footer = a.getResourceId(R.styleable.SuwGlifLayout_suwFooter, 0);
     if (footer != 0) {
@@ -239,7 +253,7 @@ public class GlifLayout extends TemplateLayout {
    */
   public void setPrimaryColor(@NonNull ColorStateList color) {
     primaryColor = color;
-    updateBackground();
+    requestBackgroundUpdate();
     getMixin(ProgressBarMixin.class).setColor(color);
   }
 
@@ -257,7 +271,7 @@ public class GlifLayout extends TemplateLayout {
    */
   public void setBackgroundBaseColor(@Nullable ColorStateList color) {
     backgroundBaseColor = color;
-    updateBackground();
+    requestBackgroundUpdate();
   }
 
   /**
@@ -275,7 +289,7 @@ public class GlifLayout extends TemplateLayout {
    */
   public void setBackgroundPatterned(boolean patterned) {
     backgroundPatterned = patterned;
-    updateBackground();
+    requestBackgroundUpdate();
   }
 
   /** @return True if this view uses {@link GlifPatternDrawable} as background. */
@@ -283,7 +297,31 @@ public class GlifLayout extends TemplateLayout {
     return backgroundPatterned;
   }
 
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    if (backgroundUpdatePending) {
+      getViewTreeObserver().removeOnPreDrawListener(backgroundUpdateListener);
+      updateBackground();
+    }
+  }
+
+  /**
+   * Updates the background before the next draw. If this layout is not attached to a window, the
+   * background is updated immediately. Otherwise calling multiple background setters in the same
+   * frame only updates the background once.
+   */
+  private void requestBackgroundUpdate() {
+    if (getWindowToken() == null) {
+      updateBackground();
+    } else if (!backgroundUpdatePending) {
+      backgroundUpdatePending = true;
+      getViewTreeObserver().addOnPreDrawListener(backgroundUpdateListener);
+    }
+  }
+
   private void updateBackground() {
+    backgroundUpdatePending = false;
     final View patternBg = findManagedViewById(R.id.suw_pattern_bg);
     if (patternBg != null) {
       int backgroundColor = 0;
@@ -294,7 +332,7 @@ public class GlifLayout extends TemplateLayout {
       }
       Drawable background =
           backgroundPatterned
-              ? new GlifPatternDrawable(backgroundColor)
+              ? GlifPatternDrawable.getCachedDrawable(backgroundColor)
               : new ColorDrawable(backgroundColor);
       if (patternBg instanceof StatusBarBackgroundLayout) {
         ((StatusBarBackgroundLayout) patternBg).setStatusBarBackground(background);
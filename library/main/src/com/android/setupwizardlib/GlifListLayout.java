@@ -77,6 +77,12 @@ public class GlifListLayout extends GlifLayout {
     listMixin.onLayout();
   }
 
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    listMixin.onAttachedToWindow();
+  }
+
   @Override
   protected View onInflateTemplate(LayoutInflater inflater, int template) {
     if (template == 0) {
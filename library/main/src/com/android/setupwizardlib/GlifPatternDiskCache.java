@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A persistent cache of the rendered GLIF pattern in the cache directory of the app. Each size
+ * bucket of the pattern is stored as the raw pixels of its ALPHA_8 mask, which are memory-mapped
+ * straight into the bitmap when read back, so that the pattern doesn't need to be rasterized again
+ * in a new process.
+ *
+ * <p>The file names include {@link GlifPatternPaths#VERSION}, so files rendered from different path
+ * data are never read.
+ */
+class GlifPatternDiskCache {
+
+  private static final String TAG = "GlifPatternDiskCache";
+
+  private static final String DIRECTORY_NAME = "suw_glif_pattern";
+  private static final String FILE_PREFIX =
+      "pattern_" + Integer.toHexString(GlifPatternPaths.VERSION) + "_";
+  private static final String FILE_SUFFIX = ".a8";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private final File directory;
+
+  GlifPatternDiskCache(Context context) {
+    this(new File(context.getCacheDir(), DIRECTORY_NAME));
+  }
+
+  @VisibleForTesting
+  GlifPatternDiskCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Reads the mask of the given size bucket.
+   *
+   * @return A new ALPHA_8 bitmap of the given size, or null if the mask is not in the cache or
+   *     cannot be read.
+   */
+  @Nullable
+  Bitmap read(int bucket, int width, int height) {
+    final File file = getFile(bucket);
+    if (!file.isFile()) {
+      return null;
+    }
+    final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+    final int byteCount = bitmap.getByteCount();
+    if (file.length() != byteCount) {
+      Log.w(TAG, "Unexpected size of cached pattern " + file + ": " + file.length());
+      bitmap.recycle();
+      file.delete();
+      return null;
+    }
+
+    try {
+      final RandomAccessFile input = new RandomAccessFile(file, "r");
+      try {
+        final MappedByteBuffer buffer =
+            input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, byteCount);
+        bitmap.copyPixelsFromBuffer(buffer);
+      } finally {
+        input.close();
+      }
+      return bitmap;
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Unable to read cached pattern " + file, e);
+      bitmap.recycle();
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Writes the mask of the given size bucket. This does blocking IO and should not be called on the
+   * UI thread.
+   */
+  void write(int bucket, Bitmap bitmap) {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Unable to create cache directory " + directory);
+      return;
+    }
+    final File file = getFile(bucket);
+    // Write to a temporary file first, so that a partially written file is never read
+    final File tempFile = new File(directory, file.getName() + TEMP_FILE_SUFFIX);
+    final int byteCount = bitmap.getByteCount();
+    try {
+      final RandomAccessFile output = new RandomAccessFile(tempFile, "rw");
+      try {
+        output.setLength(byteCount);
+        final MappedByteBuffer buffer =
+            output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, byteCount);
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.force();
+      } finally {
+        output.close();
+      }
+      if (!tempFile.renameTo(file)) {
+        throw new IOException("Unable to rename " + tempFile + " to " + file);
+      }
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Unable to write pattern to cache " + file, e);
+      tempFile.delete();
+    }
+  }
+
+  /** Deletes any files which are not of the current version of the pattern. */
+  void trim() {
+    final File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      final String name = file.getName();
+      if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+        file.delete();
+      }
+    }
+  }
+
+  private File getFile(int bucket) {
+    return new File(directory, FILE_PREFIX + bucket + FILE_SUFFIX);
+  }
+}
@@ -18,22 +18,34 @@ package com.android.setupwizardlib;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.PixelFormat;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
-import java.lang.ref.SoftReference;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.LruCache;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * This class draws the GLIF pattern used as the status bar background for phones and background for
@@ -47,11 +59,13 @@ public class GlifPatternDrawable extends Drawable {
 
   /* static section */
 
+  private static final String TAG = "GlifPatternDrawable";
+
   @SuppressLint("InlinedApi")
   private static final int[] ATTRS_PRIMARY_COLOR = new int[] {android.R.attr.colorPrimary};
 
-  private static final float VIEWBOX_HEIGHT = 768f;
-  private static final float VIEWBOX_WIDTH = 1366f;
+  private static final float VIEWBOX_HEIGHT = GlifPatternPaths.VIEWBOX_HEIGHT;
+  private static final float VIEWBOX_WIDTH = GlifPatternPaths.VIEWBOX_WIDTH;
   // X coordinate of scale focus, as a fraction of the width. (Range is 0 - 1)
   private static final float SCALE_FOCUS_X = .146f;
   // Y coordinate of scale focus, as a fraction of the height. (Range is 0 - 1)
@@ -69,11 +83,77 @@ public class GlifPatternDrawable extends Drawable {
   // Resulting max cache size = (1.5 x 1366, 1.5 x 768) = (2049, 1152)
   private static final float MAX_CACHED_BITMAP_SCALE = 1.5f;
 
-  private static final int NUM_PATHS = 7;
-
-  private static SoftReference<Bitmap> bitmapCache;
+  // Bitmaps are cached in buckets of 1/8 of the viewbox scale, so that drawables of similar sizes
+  // share the same bitmap, while a smaller drawable won't reuse a bitmap that is much bigger than
+  // it needs.
+  private static final int BUCKETS_PER_SCALE = 8;
+  private static final int MAX_BUCKET = (int) (MAX_CACHED_BITMAP_SCALE * BUCKETS_PER_SCALE);
+
+  // By default the cache has room for two bitmaps of the maximum size, so that alternating
+  // between two sizes (e.g. in multi-window or when rotating) doesn't render the pattern again.
+  private static final int DEFAULT_CACHE_SIZE_BYTES =
+      2
+          * (int) (VIEWBOX_WIDTH * MAX_CACHED_BITMAP_SCALE)
+          * (int) (VIEWBOX_HEIGHT * MAX_CACHED_BITMAP_SCALE);
+
+  private static final int NUM_PATHS = GlifPatternPaths.PATHS.length;
+
+  // Scales of the pre-rendered patterns in percent of the viewbox size, in increasing order, and
+  // their drawables
+  private static final int[] PRERENDERED_SCALES = {50, 75, 100, 150};
+  private static final int[] PRERENDERED_DRAWABLES = {
+    R.drawable.suw_glif_pattern_50,
+    R.drawable.suw_glif_pattern_75,
+    R.drawable.suw_glif_pattern_100,
+    R.drawable.suw_glif_pattern_150
+  };
+
+  // Grayscale masks are keyed by their size bucket, and patterns tinted for composited rendering by
+  // their color and size bucket, so that both are kept within the same byte budget.
+  private static volatile LruCache<Long, Bitmap> bitmapCache =
+      newBitmapCache(DEFAULT_CACHE_SIZE_BYTES);
   private static Path[] patternPaths;
-  private static int[] patternLightness;
+  private static Picture patternPicture;
+  private static volatile GlifPatternDiskCache diskCache;
+  private static volatile Resources prerenderedResources;
+
+  // Number of colors whose drawable state is kept by getCachedDrawable. The states are cleared when
+  // a rendering default changes, since they were created with the previous defaults.
+  private static final int DRAWABLE_CACHE_SIZE = 4;
+  private static final LruCache<Integer, GlifPatternState> drawableStateCache =
+      new LruCache<>(DRAWABLE_CACHE_SIZE);
+
+  private static boolean defaultAsyncRendering = false;
+  private static boolean defaultCompositedRendering = false;
+  private static boolean defaultVectorRendering = false;
+  private static Executor renderExecutor;
+  private static Handler mainHandler;
+  // Buckets which are being rendered on the background thread
+  private static final HashSet<Integer> pendingBuckets = new HashSet<>();
+  // Buckets which failed to render on the background thread, and are rendered synchronously instead
+  private static final HashSet<Integer> failedBuckets = new HashSet<>();
+  // Drawables which are showing the solid color while waiting for their pattern to be rendered
+  private static final ArrayList<WeakReference<GlifPatternDrawable>> waitingDrawables =
+      new ArrayList<>();
+
+  private static final Runnable invalidateWaitingDrawables =
+      new Runnable() {
+        @Override
+        public void run() {
+          final ArrayList<WeakReference<GlifPatternDrawable>> drawables;
+          synchronized (waitingDrawables) {
+            drawables = new ArrayList<>(waitingDrawables);
+            waitingDrawables.clear();
+          }
+          for (WeakReference<GlifPatternDrawable> ref : drawables) {
+            final GlifPatternDrawable drawable = ref.get();
+            if (drawable != null) {
+              drawable.waitingForPattern = false;
+              drawable.invalidateSelf();
+            }
+          }
+        }
+      };
 
   public static GlifPatternDrawable getDefault(Context context) {
     int colorPrimary = 0;
@@ -85,167 +165,573 @@ public class GlifPatternDrawable extends Drawable {
     return new GlifPatternDrawable(colorPrimary);
   }
 
+  /**
+   * Gets a pattern drawable of the given color, which shares its state with the other drawables of
+   * the same color returned by this method. Creating the drawable is cheap, and in composited
+   * rendering mode, the tinted pattern is only rendered once for all the drawables. The returned
+   * drawable must be {@link #mutate() mutated} before its color or rendering settings are changed.
+   *
+   * @param color The base color of the pattern. The alpha component of the color will be ignored.
+   */
+  public static GlifPatternDrawable getCachedDrawable(int color) {
+    final int patternColor = getPatternColor(color);
+    final GlifPatternState state = drawableStateCache.get(patternColor);
+    if (state == null || state.color != patternColor) {
+      // Also replace the cached state if a drawable has changed it without mutating
+      final GlifPatternDrawable drawable = new GlifPatternDrawable(color);
+      drawableStateCache.put(patternColor, drawable.state);
+      return drawable;
+    }
+    return (GlifPatternDrawable) state.newDrawable();
+  }
+
+  /** @return The given color with the alpha component replaced by {@link #COLOR_ALPHA_INT}. */
+  private static int getPatternColor(int color) {
+    return Color.argb(COLOR_ALPHA_INT, Color.red(color), Color.green(color), Color.blue(color));
+  }
+
   @VisibleForTesting
   public static void invalidatePattern() {
-    bitmapCache = null;
+    bitmapCache.evictAll();
+    synchronized (pendingBuckets) {
+      failedBuckets.clear();
+    }
+  }
+
+  /**
+   * Sets the maximum number of bytes used by the cache of rendered patterns. The cache keeps the
+   * patterns rendered for the most recently used drawable sizes within this budget. Calling this
+   * method clears the cache and resets its hit and miss counts.
+   *
+   * @param maxBytes The maximum size of the cache in bytes. The default is enough to hold two
+   *     patterns of the largest size. Smaller values are raised to the size of one pattern of the
+   *     largest size, so that the pattern being drawn is never evicted and rendered on every draw.
+   */
+  public static void setBitmapCacheSize(int maxBytes) {
+    final LruCache<Long, Bitmap> oldCache = bitmapCache;
+    bitmapCache = newBitmapCache(Math.max(maxBytes, getBitmapByteCount(MAX_BUCKET)));
+    oldCache.evictAll();
+  }
+
+  /** @return The number of times a rendered pattern was found in the cache. */
+  public static int getBitmapCacheHitCount() {
+    return bitmapCache.hitCount();
+  }
+
+  /** @return The number of times a pattern was not in the cache and had to be rendered. */
+  public static int getBitmapCacheMissCount() {
+    return bitmapCache.missCount();
+  }
+
+  private static LruCache<Long, Bitmap> newBitmapCache(int maxBytes) {
+    return new LruCache<Long, Bitmap>(maxBytes) {
+      @Override
+      protected int sizeOf(Long key, Bitmap bitmap) {
+        return bitmap.getByteCount();
+      }
+    };
+  }
+
+  /**
+   * Sets whether rendered patterns are also persisted in the cache directory of the app. When
+   * enabled, a pattern which is not in the memory cache is read from disk if it was rendered
+   * before, even in a previous process, instead of being rasterized again. Newly rendered patterns
+   * are written to disk on a background thread.
+   *
+   * <p>Files rendered from a different version of the pattern are deleted when the disk cache is
+   * enabled.
+   */
+  public static void setDiskCacheEnabled(Context context, boolean enabled) {
+    if (enabled) {
+      final GlifPatternDiskCache cache =
+          new GlifPatternDiskCache(context.getApplicationContext());
+      diskCache = cache;
+      getRenderExecutor()
+          .execute(
+              new Runnable() {
+                @Override
+                public void run() {
+                  cache.trim();
+                }
+              });
+    } else {
+      diskCache = null;
+    }
+  }
+
+  /**
+   * Sets whether patterns are decoded from the pre-rendered {@code suw_glif_pattern_*} drawables
+   * instead of being rasterized at runtime. The drawables are generated from the same path data at
+   * build time, at several scales of the viewbox. The smallest drawable which is at least as big as
+   * the size bucket of the drawable is decoded, subsampled if it is at least twice as big as
+   * needed, and scaled to the bounds when drawn like the rendered pattern. Sizes larger than all
+   * the pre-rendered drawables are rasterized at runtime. This saves the CPU time of rasterizing
+   * the paths on cold start, which is most noticeable on low-end devices.
+   *
+   * <p>The pre-rendered drawables are not used if they were generated from a different version of
+   * the path data.
+   */
+  public static void setPrerenderedPatternEnabled(Context context, boolean enabled) {
+    Resources res = null;
+    if (enabled) {
+      res = context.getApplicationContext().getResources();
+      if (res.getInteger(R.integer.suw_glif_pattern_version) != GlifPatternPaths.VERSION) {
+        Log.w(TAG, "Pre-rendered pattern is out of date, run generateGlifPattern");
+        res = null;
+      }
+    }
+    prerenderedResources = res;
+  }
+
+  /**
+   * Sets whether newly created drawables render the pattern on a background thread by default.
+   *
+   * @see #setAsyncRendering(boolean)
+   */
+  public static void setDefaultAsyncRendering(boolean asyncRendering) {
+    defaultAsyncRendering = asyncRendering;
+    drawableStateCache.evictAll();
+  }
+
+  /**
+   * Sets whether newly created drawables draw a pre-tinted copy of the pattern by default.
+   *
+   * @see #setCompositedRendering(boolean)
+   */
+  public static void setDefaultCompositedRendering(boolean compositedRendering) {
+    defaultCompositedRendering = compositedRendering;
+    drawableStateCache.evictAll();
+  }
+
+  /**
+   * Sets whether newly created drawables draw the pattern as vector paths by default.
+   *
+   * @see #setVectorRendering(boolean)
+   */
+  public static void setDefaultVectorRendering(boolean vectorRendering) {
+    defaultVectorRendering = vectorRendering;
+    drawableStateCache.evictAll();
+  }
+
+  /**
+   * Renders the pattern for a drawable of the given size on a background thread, so that it is
+   * already cached when the drawable is first drawn. Apps can call this early during startup, for
+   * example in {@code Application.onCreate()}, before their first activity is shown.
+   *
+   * @param context The context whose display size is used if {@code width} or {@code height} is
+   *     not positive.
+   * @param width The expected width of the drawable in pixels.
+   * @param height The expected height of the drawable in pixels.
+   */
+  public static void prewarm(Context context, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      final DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+      width = metrics.widthPixels;
+      height = metrics.heightPixels;
+    }
+    final int bucket = getBucket(width, height);
+    // Use a snapshot to check the cache, so that prewarming doesn't count towards the hit and
+    // miss counts of the cache.
+    if (!bitmapCache.snapshot().containsKey((long) bucket)) {
+      renderAsync(bucket);
+    }
+  }
+
+  /**
+   * Renders the pattern of the given size bucket on the background thread, unless it is already
+   * being rendered.
+   *
+   * @return False if the bucket failed to render on the background thread before, in which case it
+   *     should be rendered synchronously instead.
+   */
+  private static boolean renderAsync(final int bucket) {
+    synchronized (pendingBuckets) {
+      if (failedBuckets.contains(bucket)) {
+        return false;
+      }
+      if (!pendingBuckets.add(bucket)) {
+        // Already being rendered
+        return true;
+      }
+    }
+    getRenderExecutor()
+        .execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  bitmapCache.put((long) bucket, renderBitmap(bucket));
+                } catch (RuntimeException | OutOfMemoryError e) {
+                  Log.w(TAG, "Unable to render pattern of bucket " + bucket, e);
+                  synchronized (pendingBuckets) {
+                    failedBuckets.add(bucket);
+                  }
+                } finally {
+                  synchronized (pendingBuckets) {
+                    pendingBuckets.remove(bucket);
+                  }
+                  getMainHandler().post(invalidateWaitingDrawables);
+                }
+              }
+            });
+    return true;
+  }
+
+  private static synchronized Executor getRenderExecutor() {
+    if (renderExecutor == null) {
+      renderExecutor = Executors.newSingleThreadExecutor();
+    }
+    return renderExecutor;
+  }
+
+  private static synchronized Handler getMainHandler() {
+    if (mainHandler == null) {
+      mainHandler = new Handler(Looper.getMainLooper());
+    }
+    return mainHandler;
+  }
+
+  /**
+   * @return The size bucket of the bitmap cache for a drawable of the given size. The bitmap for
+   *     bucket {@code n} is rendered at {@code n / BUCKETS_PER_SCALE} times the viewbox size.
+   */
+  @VisibleForTesting
+  static int getBucket(int drawableWidth, int drawableHeight) {
+    final float scale = Math.max(drawableWidth / VIEWBOX_WIDTH, drawableHeight / VIEWBOX_HEIGHT);
+    final int bucket = (int) Math.ceil(scale * BUCKETS_PER_SCALE);
+    return Math.max(1, Math.min(MAX_BUCKET, bucket));
+  }
+
+  /** @return The number of bytes used by the ALPHA_8 bitmap of the given size bucket. */
+  private static int getBitmapByteCount(int bucket) {
+    final float scale = bucket / (float) BUCKETS_PER_SCALE;
+    return (int) (VIEWBOX_WIDTH * scale) * (int) (VIEWBOX_HEIGHT * scale);
   }
 
   /* non-static section */
 
-  private int color;
+  private GlifPatternState state;
+  private boolean mutated = false;
+  // Whether this drawable is in waitingDrawables. Only accessed on the main thread.
+  private boolean waitingForPattern = false;
   private final Paint tempPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
   public GlifPatternDrawable(int color) {
+    this(new GlifPatternState());
     setColor(color);
   }
 
+  private GlifPatternDrawable(GlifPatternState state) {
+    this.state = state;
+  }
+
   @Override
   public void draw(@NonNull Canvas canvas) {
     final Rect bounds = getBounds();
+    // Hardware accelerated canvases can only draw pictures from M
+    if (state.vectorRendering
+        && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || !canvas.isHardwareAccelerated())) {
+      canvas.save();
+      canvas.clipRect(bounds);
+      scaleCanvasToBounds(canvas, VIEWBOX_WIDTH, VIEWBOX_HEIGHT, bounds);
+      canvas.drawPicture(getPatternPicture());
+      canvas.drawColor(state.color);
+      canvas.restore();
+      return;
+    }
+
     int drawableWidth = bounds.width();
     int drawableHeight = bounds.height();
-    Bitmap bitmap = null;
-    if (bitmapCache != null) {
-      bitmap = bitmapCache.get();
-    }
-    if (bitmap != null) {
-      final int bitmapWidth = bitmap.getWidth();
-      final int bitmapHeight = bitmap.getHeight();
-      // Invalidate the cache if this drawable is bigger and we can still create a bigger
-      // cache.
-      if (drawableWidth > bitmapWidth && bitmapWidth < VIEWBOX_WIDTH * MAX_CACHED_BITMAP_SCALE) {
-        bitmap = null;
-      } else if (drawableHeight > bitmapHeight
-          && bitmapHeight < VIEWBOX_HEIGHT * MAX_CACHED_BITMAP_SCALE) {
-        bitmap = null;
-      }
+    final int bucket = getBucket(drawableWidth, drawableHeight);
+    Bitmap composited = null;
+    if (state.compositedRendering) {
+      composited = bitmapCache.get(getCompositedKey(state.color, bucket));
     }
 
-    if (bitmap == null) {
-      // Reset the paint so it can be used to draw the paths in renderOnCanvas
-      tempPaint.reset();
-
-      bitmap = createBitmapCache(drawableWidth, drawableHeight);
-      bitmapCache = new SoftReference<>(bitmap);
-
-      // Reset the paint to so it can be used to draw the bitmap
-      tempPaint.reset();
+    Bitmap bitmap = null;
+    if (composited == null) {
+      bitmap = bitmapCache.get((long) bucket);
+      if (bitmap == null) {
+        // Only render asynchronously if the result can be kept in the cache, otherwise the
+        // drawable would be invalidated and rendered again indefinitely.
+        if (state.asyncRendering
+            && getBitmapByteCount(bucket) <= bitmapCache.maxSize()
+            && renderAsync(bucket)) {
+          // Draw the solid color until the pattern is rendered on the background thread
+          if (!waitingForPattern) {
+            waitingForPattern = true;
+            synchronized (waitingDrawables) {
+              waitingDrawables.add(new WeakReference<>(this));
+            }
+          }
+
+          canvas.save();
+          canvas.clipRect(bounds);
+          canvas.drawColor(Color.BLACK);
+          canvas.drawColor(state.color);
+          canvas.restore();
+          return;
+        }
+
+        bitmap = createBitmapCache(drawableWidth, drawableHeight);
+        bitmapCache.put((long) bucket, bitmap);
+      }
+      if (state.compositedRendering) {
+        composited = createCompositedBitmap(bitmap, bucket);
+      }
     }
 
     canvas.save();
     canvas.clipRect(bounds);
 
-    scaleCanvasToBounds(canvas, bitmap, bounds);
-    canvas.drawColor(Color.BLACK);
     tempPaint.setColor(Color.WHITE);
-    canvas.drawBitmap(bitmap, 0, 0, tempPaint);
-    canvas.drawColor(color);
+    if (composited != null) {
+      scaleCanvasToBounds(canvas, composited, bounds);
+      canvas.drawBitmap(composited, 0, 0, tempPaint);
+    } else {
+      scaleCanvasToBounds(canvas, bitmap, bounds);
+      canvas.drawColor(Color.BLACK);
+      canvas.drawBitmap(bitmap, 0, 0, tempPaint);
+      canvas.drawColor(state.color);
+    }
 
     canvas.restore();
   }
 
+  /** @return The key of the pattern tinted with {@code color} in the bitmap cache. */
+  private static long getCompositedKey(int color, int bucket) {
+    return ((long) color << 32) | bucket;
+  }
+
+  /**
+   * Tints the mask of the given size bucket with the color of this drawable, and puts the result in
+   * the bitmap cache, where it is shared by all drawables of the same color and size. The tinted
+   * bitmap is opaque, so it is stored as RGB_565 to halve its memory usage.
+   *
+   * @return The tinted bitmap, or null if it doesn't fit in the bitmap cache, in which case the
+   *     mask should be drawn instead of tinting it again on every draw.
+   */
+  private Bitmap createCompositedBitmap(Bitmap mask, int bucket) {
+    // RGB_565 uses 2 bytes per pixel
+    if (mask.getWidth() * mask.getHeight() * 2 > bitmapCache.maxSize()) {
+      return null;
+    }
+    final Bitmap composited =
+        Bitmap.createBitmap(mask.getWidth(), mask.getHeight(), Bitmap.Config.RGB_565);
+    final Canvas compositedCanvas = new Canvas(composited);
+    compositedCanvas.drawColor(Color.BLACK);
+    tempPaint.setColor(Color.WHITE);
+    compositedCanvas.drawBitmap(mask, 0, 0, tempPaint);
+    compositedCanvas.drawColor(state.color);
+    bitmapCache.put(getCompositedKey(state.color, bucket), composited);
+    return composited;
+  }
+
   @VisibleForTesting
   public Bitmap createBitmapCache(int drawableWidth, int drawableHeight) {
-    float scaleX = drawableWidth / VIEWBOX_WIDTH;
-    float scaleY = drawableHeight / VIEWBOX_HEIGHT;
-    float scale = Math.max(scaleX, scaleY);
-    scale = Math.min(MAX_CACHED_BITMAP_SCALE, scale);
+    return renderBitmap(getBucket(drawableWidth, drawableHeight));
+  }
+
+  /**
+   * Renders the pattern for the given size bucket into a new bitmap, or reads it from the disk
+   * cache if enabled. This can be called from any thread.
+   */
+  private static Bitmap renderBitmap(final int bucket) {
+    final float scale = bucket / (float) BUCKETS_PER_SCALE;
 
     int scaledWidth = (int) (VIEWBOX_WIDTH * scale);
     int scaledHeight = (int) (VIEWBOX_HEIGHT * scale);
 
+    final GlifPatternDiskCache cache = diskCache;
+    if (cache != null) {
+      final Bitmap cachedBitmap = cache.read(bucket, scaledWidth, scaledHeight);
+      if (cachedBitmap != null) {
+        return cachedBitmap;
+      }
+    }
+
+    final Resources res = prerenderedResources;
+    if (res != null) {
+      final Bitmap prerenderedBitmap = decodePrerenderedPattern(res, bucket, scaledWidth);
+      if (prerenderedBitmap != null) {
+        return prerenderedBitmap;
+      }
+    }
+
     // Use ALPHA_8 mask to save memory, since the pattern is grayscale only anyway.
-    Bitmap bitmap = Bitmap.createBitmap(scaledWidth, scaledHeight, Bitmap.Config.ALPHA_8);
+    final Bitmap bitmap = Bitmap.createBitmap(scaledWidth, scaledHeight, Bitmap.Config.ALPHA_8);
     Canvas bitmapCanvas = new Canvas(bitmap);
     renderOnCanvas(bitmapCanvas, scale);
+
+    if (cache != null) {
+      getRenderExecutor()
+          .execute(
+              new Runnable() {
+                @Override
+                public void run() {
+                  cache.write(bucket, bitmap);
+                }
+              });
+    }
     return bitmap;
   }
 
-  private void renderOnCanvas(Canvas canvas, float scale) {
-    canvas.save();
-    canvas.scale(scale, scale);
-
-    tempPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+  /**
+   * Decodes the smallest pre-rendered pattern which is at least as big as the given size bucket
+   * into an ALPHA_8 mask. The mask is at least {@code width} pixels wide, but it doesn't
+   * necessarily have the exact size of the bucket, which is fine since the mask is scaled to the
+   * bounds of the drawable anyway.
+   *
+   * @return The mask, or null if no pre-rendered pattern is big enough or it cannot be decoded.
+   */
+  @VisibleForTesting
+  static Bitmap decodePrerenderedPattern(Resources res, int bucket, int width) {
+    final int index = getPrerenderedPatternIndex(bucket);
+    if (index < 0) {
+      return null;
+    }
+    final int resId = PRERENDERED_DRAWABLES[index];
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    // Decode at the size of the image, the scale is determined by the bounds of the drawable
+    options.inScaled = false;
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeResource(res, resId, options);
+    if (options.outWidth < width) {
+      return null;
+    }
+    int sampleSize = 1;
+    while (options.outWidth / (sampleSize * 2) >= width) {
+      sampleSize *= 2;
+    }
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSize;
 
-    // Draw the pattern by creating the paths, adjusting the colors and drawing them. The path
-    // values are extracted from the SVG of the pattern file.
+    final Bitmap decoded = BitmapFactory.decodeResource(res, resId, options);
+    if (decoded == null) {
+      return null;
+    }
+    // The pattern is stored in the alpha channel of the image
+    final Bitmap mask = decoded.extractAlpha();
+    decoded.recycle();
+    return mask;
+  }
 
-    if (patternPaths == null) {
-      patternPaths = new Path[NUM_PATHS];
-      // Lightness values of the pattern, range 0 - 255
-      patternLightness = new int[] {10, 40, 51, 66, 91, 112, 130};
-
-      Path p = patternPaths[0] = new Path();
-      p.moveTo(1029.4f, 357.5f);
-      p.lineTo(1366f, 759.1f);
-      p.lineTo(1366f, 0f);
-      p.lineTo(1137.7f, 0f);
-      p.close();
-
-      p = patternPaths[1] = new Path();
-      p.moveTo(1138.1f, 0f);
-      p.rLineTo(-144.8f, 768f);
-      p.rLineTo(372.7f, 0f);
-      p.rLineTo(0f, -524f);
-      p.cubicTo(1290.7f, 121.6f, 1219.2f, 41.1f, 1178.7f, 0f);
-      p.close();
-
-      p = patternPaths[2] = new Path();
-      p.moveTo(949.8f, 768f);
-      p.rCubicTo(92.6f, -170.6f, 213f, -440.3f, 269.4f, -768f);
-      p.lineTo(585f, 0f);
-      p.rLineTo(2.1f, 766f);
-      p.close();
-
-      p = patternPaths[3] = new Path();
-      p.moveTo(471.1f, 768f);
-      p.rMoveTo(704.5f, 0f);
-      p.cubicTo(1123.6f, 563.3f, 1027.4f, 275.2f, 856.2f, 0f);
-      p.lineTo(476.4f, 0f);
-      p.rLineTo(-5.3f, 768f);
-      p.close();
-
-      p = patternPaths[4] = new Path();
-      p.moveTo(323.1f, 768f);
-      p.moveTo(777.5f, 768f);
-      p.cubicTo(661.9f, 348.8f, 427.2f, 21.4f, 401.2f, 25.4f);
-      p.lineTo(323.1f, 768f);
-      p.close();
-
-      p = patternPaths[5] = new Path();
-      p.moveTo(178.44286f, 766.8571f);
-      p.lineTo(308.7f, 768f);
-      p.cubicTo(381.7f, 604.6f, 481.6f, 344.3f, 562.2f, 0f);
-      p.lineTo(0f, 0f);
-      p.close();
-
-      p = patternPaths[6] = new Path();
-      p.moveTo(146f, 0f);
-      p.lineTo(0f, 0f);
-      p.lineTo(0f, 768f);
-      p.lineTo(394.2f, 768f);
-      p.cubicTo(327.7f, 475.3f, 228.5f, 201f, 146f, 0f);
-      p.close();
+  /**
+   * @return The index in {@link #PRERENDERED_DRAWABLES} of the smallest pre-rendered pattern which
+   *     is at least as big as the given size bucket, or -1 if there is none.
+   */
+  @VisibleForTesting
+  static int getPrerenderedPatternIndex(int bucket) {
+    for (int i = 0; i < PRERENDERED_SCALES.length; i++) {
+      // Compare PRERENDERED_SCALES[i] / 100 >= bucket / BUCKETS_PER_SCALE in integers
+      if (PRERENDERED_SCALES[i] * BUCKETS_PER_SCALE >= bucket * 100) {
+        return i;
+      }
     }
+    return -1;
+  }
+
+  private static void renderOnCanvas(Canvas canvas, float scale) {
+    canvas.save();
+    canvas.scale(scale, scale);
+
+    final Paint paint = new Paint();
+    paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
 
+    // Draw the pattern by creating the paths, adjusting the colors and drawing them.
+    final Path[] paths = getPatternPaths();
     for (int i = 0; i < NUM_PATHS; i++) {
       // Color is 0xAARRGGBB, so alpha << 24 will create a color with (alpha)% black.
       // Although the color components don't really matter, since the backing bitmap cache is
       // ALPHA_8.
-      tempPaint.setColor(patternLightness[i] << 24);
-      canvas.drawPath(patternPaths[i], tempPaint);
+      paint.setColor(GlifPatternPaths.LIGHTNESS[i] << 24);
+      canvas.drawPath(paths[i], paint);
     }
 
     canvas.restore();
-    tempPaint.reset();
+  }
+
+  /** @return The paths of the pattern, built from the path data in {@link GlifPatternPaths}. */
+  private static synchronized Path[] getPatternPaths() {
+    if (patternPaths == null) {
+      patternPaths = new Path[NUM_PATHS];
+      for (int i = 0; i < NUM_PATHS; i++) {
+        final Path path = patternPaths[i] = new Path();
+        GlifPatternPaths.buildPath(
+            GlifPatternPaths.PATHS[i],
+            new GlifPatternPaths.PathBuilder() {
+              @Override
+              public void moveTo(float x, float y) {
+                path.moveTo(x, y);
+              }
+
+              @Override
+              public void rMoveTo(float dx, float dy) {
+                path.rMoveTo(dx, dy);
+              }
+
+              @Override
+              public void lineTo(float x, float y) {
+                path.lineTo(x, y);
+              }
+
+              @Override
+              public void rLineTo(float dx, float dy) {
+                path.rLineTo(dx, dy);
+              }
+
+              @Override
+              public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+                path.cubicTo(x1, y1, x2, y2, x3, y3);
+              }
+
+              @Override
+              public void rCubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+                path.rCubicTo(x1, y1, x2, y2, x3, y3);
+              }
+
+              @Override
+              public void close() {
+                path.close();
+              }
+            });
+      }
+    }
+    return patternPaths;
+  }
+
+  /**
+   * @return A recording of the grayscale pattern in viewbox coordinates, including its black
+   *     background. Unlike the bitmap cache, this is drawn at the exact scale of the drawable.
+   */
+  private static synchronized Picture getPatternPicture() {
+    if (patternPicture == null) {
+      final Picture picture = new Picture();
+      final Canvas canvas = picture.beginRecording((int) VIEWBOX_WIDTH, (int) VIEWBOX_HEIGHT);
+      canvas.drawColor(Color.BLACK);
+      final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+      final Path[] paths = getPatternPaths();
+      for (int i = 0; i < NUM_PATHS; i++) {
+        // Draw opaque grays, which look the same as the ALPHA_8 mask drawn in white over black.
+        final int lightness = GlifPatternPaths.LIGHTNESS[i];
+        paint.setColor(Color.rgb(lightness, lightness, lightness));
+        canvas.drawPath(paths[i], paint);
+      }
+      picture.endRecording();
+      patternPicture = picture;
+    }
+    return patternPicture;
   }
 
   @VisibleForTesting
   public void scaleCanvasToBounds(Canvas canvas, Bitmap bitmap, Rect drawableBounds) {
-    int bitmapWidth = bitmap.getWidth();
-    int bitmapHeight = bitmap.getHeight();
-    float scaleX = drawableBounds.width() / (float) bitmapWidth;
-    float scaleY = drawableBounds.height() / (float) bitmapHeight;
+    scaleCanvasToBounds(canvas, bitmap.getWidth(), bitmap.getHeight(), drawableBounds);
+  }
+
+  private void scaleCanvasToBounds(
+      Canvas canvas, float bitmapWidth, float bitmapHeight, Rect drawableBounds) {
+    float scaleX = drawableBounds.width() / bitmapWidth;
+    float scaleY = drawableBounds.height() / bitmapHeight;
 
     // First scale both sides to fit independently.
     canvas.scale(scaleX, scaleY);
@@ -260,6 +746,71 @@ public class GlifPatternDrawable extends Drawable {
     }
   }
 
+  /**
+   * Sets whether this drawable renders its pattern on a background thread. When enabled, the first
+   * time the drawable is drawn at a size which is not cached yet, it is filled with its solid color
+   * while the pattern is rendered on a background thread, and then invalidated once the pattern is
+   * ready. This avoids rendering the pattern on the UI thread during the first frame.
+   *
+   * <p>The default value can be set using {@link #setDefaultAsyncRendering(boolean)}.
+   *
+   * @see #prewarm(Context, int, int)
+   */
+  public void setAsyncRendering(boolean asyncRendering) {
+    state.asyncRendering = asyncRendering;
+  }
+
+  /** @return True if this drawable renders its pattern on a background thread. */
+  public boolean isAsyncRendering() {
+    return state.asyncRendering;
+  }
+
+  /**
+   * Sets whether this drawable draws a pre-tinted copy of the pattern. By default, every draw fills
+   * the bounds three times: with black, with the grayscale pattern and with the translucent color.
+   * In composited mode, the result of these three passes is rendered once per color and size into
+   * an opaque bitmap, and every draw is a single bitmap blit. This uses additional memory for the
+   * tinted bitmap, which is twice the size of the grayscale pattern, in exchange for a lower fill
+   * rate on every frame. Tinted bitmaps are kept in the same cache as the grayscale patterns,
+   * within the budget set by {@link #setBitmapCacheSize(int)}.
+   *
+   * <p>The default value can be set using {@link #setDefaultCompositedRendering(boolean)}.
+   */
+  public void setCompositedRendering(boolean compositedRendering) {
+    if (state.compositedRendering != compositedRendering) {
+      state.compositedRendering = compositedRendering;
+      invalidateSelf();
+    }
+  }
+
+  /** @return True if this drawable draws a pre-tinted copy of the pattern. */
+  public boolean isCompositedRendering() {
+    return state.compositedRendering;
+  }
+
+  /**
+   * Sets whether this drawable draws the pattern as vector paths instead of scaling a cached
+   * bitmap. The paths are recorded once into a {@link Picture}, which is replayed at the exact
+   * bounds of the drawable, so the pattern stays sharp on large screens and no bitmap memory is
+   * used. On a hardware accelerated canvas before {@link Build.VERSION_CODES#M}, which cannot draw
+   * pictures, the drawable falls back to the bitmap cache. Vector rendering takes precedence over
+   * {@link #setAsyncRendering(boolean) async} and {@link #setCompositedRendering(boolean)
+   * composited} rendering, which only apply to the bitmap cache.
+   *
+   * <p>The default value can be set using {@link #setDefaultVectorRendering(boolean)}.
+   */
+  public void setVectorRendering(boolean vectorRendering) {
+    if (state.vectorRendering != vectorRendering) {
+      state.vectorRendering = vectorRendering;
+      invalidateSelf();
+    }
+  }
+
+  /** @return True if this drawable draws the pattern as vector paths. */
+  public boolean isVectorRendering() {
+    return state.vectorRendering;
+  }
+
   @Override
   public void setAlpha(int i) {
     // Ignore
@@ -280,10 +831,7 @@ public class GlifPatternDrawable extends Drawable {
    * color will be ignored.
    */
   public void setColor(int color) {
-    final int r = Color.red(color);
-    final int g = Color.green(color);
-    final int b = Color.blue(color);
-    this.color = Color.argb(COLOR_ALPHA_INT, r, g, b);
+    state.color = getPatternColor(color);
     invalidateSelf();
   }
 
@@ -292,6 +840,54 @@ public class GlifPatternDrawable extends Drawable {
    *     is always 255.
    */
   public int getColor() {
-    return Color.argb(255, Color.red(color), Color.green(color), Color.blue(color));
+    return state.color | 0xff000000;
+  }
+
+  @Override
+  public ConstantState getConstantState() {
+    return state;
+  }
+
+  /**
+   * Makes this drawable mutable. Drawables created from the same {@link ConstantState}, including
+   * the drawables returned by {@link #getCachedDrawable(int)}, share their color and rendering
+   * settings until they are mutated.
+   */
+  @Override
+  public Drawable mutate() {
+    if (!mutated && super.mutate() == this) {
+      state = new GlifPatternState(state);
+      mutated = true;
+    }
+    return this;
+  }
+
+  /** The state of the pattern drawable, which can be shared by drawables of the same color. */
+  private static final class GlifPatternState extends ConstantState {
+
+    private int color;
+    private boolean asyncRendering = defaultAsyncRendering;
+    private boolean compositedRendering = defaultCompositedRendering;
+    private boolean vectorRendering = defaultVectorRendering;
+
+    GlifPatternState() {}
+
+    GlifPatternState(GlifPatternState orig) {
+      color = orig.color;
+      asyncRendering = orig.asyncRendering;
+      compositedRendering = orig.compositedRendering;
+      vectorRendering = orig.vectorRendering;
+    }
+
+    @NonNull
+    @Override
+    public Drawable newDrawable() {
+      return new GlifPatternDrawable(this);
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+      return 0;
+    }
   }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib;
+
+import java.util.Arrays;
+
+/**
+ * The path data of the GLIF pattern drawn by {@link GlifPatternDrawable}, extracted from the SVG of
+ * the pattern file.
+ *
+ * <p>This class intentionally has no Android dependencies, so that the same path data can be used
+ * by tools running on the build host.
+ */
+final class GlifPatternPaths {
+
+  /** Builds a path from the commands in the path data. */
+  interface PathBuilder {
+    void moveTo(float x, float y);
+
+    void rMoveTo(float dx, float dy);
+
+    void lineTo(float x, float y);
+
+    void rLineTo(float dx, float dy);
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+    void rCubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+    void close();
+  }
+
+  static final float VIEWBOX_WIDTH = 1366f;
+  static final float VIEWBOX_HEIGHT = 768f;
+
+  /**
+   * Paths of the pattern, from back to front, in a subset of the SVG path syntax. Each command is
+   * followed by exactly one set of its coordinates. Supported commands are M, m, L, l, C, c and Z.
+   */
+  static final String[] PATHS = {
+    "M1029.4,357.5 L1366,759.1 L1366,0 L1137.7,0 Z",
+    "M1138.1,0 l-144.8,768 l372.7,0 l0,-524 C1290.7,121.6 1219.2,41.1 1178.7,0 Z",
+    "M949.8,768 c92.6,-170.6 213,-440.3 269.4,-768 L585,0 l2.1,766 Z",
+    "M471.1,768 m704.5,0 C1123.6,563.3 1027.4,275.2 856.2,0 L476.4,0 l-5.3,768 Z",
+    "M323.1,768 M777.5,768 C661.9,348.8 427.2,21.4 401.2,25.4 L323.1,768 Z",
+    "M178.44286,766.8571 L308.7,768 C381.7,604.6 481.6,344.3 562.2,0 L0,0 Z",
+    "M146,0 L0,0 L0,768 L394.2,768 C327.7,475.3 228.5,201 146,0 Z",
+  };
+
+  /** Lightness values of each path in {@link #PATHS}, range 0 - 255. */
+  static final int[] LIGHTNESS = {10, 40, 51, 66, 91, 112, 130};
+
+  /**
+   * A version number of the pattern, derived from the path data. Anything that persists a
+   * rendering of the pattern should be invalidated when this changes.
+   */
+  static final int VERSION =
+      31 * (31 * Arrays.hashCode(PATHS) + Arrays.hashCode(LIGHTNESS))
+          + Float.floatToIntBits(VIEWBOX_WIDTH * VIEWBOX_HEIGHT);
+
+  /**
+   * Parses the path data and feeds the commands to {@code builder}.
+   *
+   * @throws IllegalArgumentException If the path data contains an unsupported command.
+   */
+  static void buildPath(String pathData, PathBuilder builder) {
+    final String[] tokens = pathData.trim().split("[\\s,]+");
+    int i = 0;
+    while (i < tokens.length) {
+      final String token = tokens[i];
+      final char command = token.charAt(0);
+      // The first coordinate is attached to the command, e.g. "M146"
+      tokens[i] = token.substring(1);
+      switch (command) {
+        case 'M':
+          builder.moveTo(parse(tokens, i), parse(tokens, i + 1));
+          i += 2;
+          break;
+        case 'm':
+          builder.rMoveTo(parse(tokens, i), parse(tokens, i + 1));
+          i += 2;
+          break;
+        case 'L':
+          builder.lineTo(parse(tokens, i), parse(tokens, i + 1));
+          i += 2;
+          break;
+        case 'l':
+          builder.rLineTo(parse(tokens, i), parse(tokens, i + 1));
+          i += 2;
+          break;
+        case 'C':
+          builder.cubicTo(
+              parse(tokens, i),
+              parse(tokens, i + 1),
+              parse(tokens, i + 2),
+              parse(tokens, i + 3),
+              parse(tokens, i + 4),
+              parse(tokens, i + 5));
+          i += 6;
+          break;
+        case 'c':
+          builder.rCubicTo(
+              parse(tokens, i),
+              parse(tokens, i + 1),
+              parse(tokens, i + 2),
+              parse(tokens, i + 3),
+              parse(tokens, i + 4),
+              parse(tokens, i + 5));
+          i += 6;
+          break;
+        case 'Z':
+        case 'z':
+          builder.close();
+          i++;
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported path command " + command);
+      }
+    }
+  }
+
+  private static float parse(String[] tokens, int index) {
+    return Float.parseFloat(tokens[index]);
+  }
+
+  private GlifPatternPaths() {}
+}
@@ -111,12 +111,21 @@ public class SetupWizardLayout extends TemplateLayout {
     if (illustration != null) {
       setIllustration(illustration);
     } else {
-      final Drawable illustrationImage =
-          a.getDrawable(R.styleable.SuwSetupWizardLayout_suwIllustrationImage);
-      final Drawable horizontalTile =
-          a.getDrawable(R.styleable.SuwSetupWizardLayout_suwIllustrationHorizontalTile);
-      if (illustrationImage != null && horizontalTile != null) {
+      final int illustrationImage =
+          a.getResourceId(R.styleable.SuwSetupWizardLayout_suwIllustrationImage, 0);
+      final int horizontalTile =
+          a.getResourceId(R.styleable.SuwSetupWizardLayout_suwIllustrationHorizontalTile, 0);
+      if (illustrationImage != 0 && horizontalTile != 0) {
         setIllustration(illustrationImage, horizontalTile);
+      } else {
+        // Inline values, such as color literals, have no resource ID
+        final Drawable illustrationImageDrawable =
+            a.getDrawable(R.styleable.SuwSetupWizardLayout_suwIllustrationImage);
+        final Drawable horizontalTileDrawable =
+            a.getDrawable(R.styleable.SuwSetupWizardLayout_suwIllustrationHorizontalTile);
+        if (illustrationImageDrawable != null && horizontalTileDrawable != null) {
+          setIllustration(illustrationImageDrawable, horizontalTileDrawable);
+        }
       }
     }
 
@@ -234,8 +243,10 @@ public class SetupWizardLayout extends TemplateLayout {
   /**
    * Set the illustration of the layout, which will be created asset and the horizontal tile as
    * suitable. On phone layouts (not sw600dp), the asset will be scaled, maintaining aspect ratio.
-   * On tablets (sw600dp), the assets will always have 256dp height and the rest of the illustration
-   * area that the asset doesn't fill will be covered by the horizontalTile.
+   * The asset is decoded at the width of the illustration in that case, see {@link
+   * Illustration#setIllustrationResource(int)}. On tablets (sw600dp), the assets will always have
+   * 256dp height and the rest of the illustration area that the asset doesn't fill will be covered
+   * by the horizontalTile.
    *
    * @param asset Resource ID of the illustration asset.
    * @param horizontalTile Resource ID of the horizontally repeating tile for tablet layout.
@@ -244,17 +255,14 @@ public class SetupWizardLayout extends TemplateLayout {
     final View view = findManagedViewById(R.id.suw_layout_decor);
     if (view instanceof Illustration) {
       final Illustration illustration = (Illustration) view;
-      final Drawable illustrationDrawable = getIllustration(asset, horizontalTile);
-      illustration.setIllustration(illustrationDrawable);
-    }
-  }
-
-  private void setIllustration(Drawable asset, Drawable horizontalTile) {
-    final View view = findManagedViewById(R.id.suw_layout_decor);
-    if (view instanceof Illustration) {
-      final Illustration illustration = (Illustration) view;
-      final Drawable illustrationDrawable = getIllustration(asset, horizontalTile);
-      illustration.setIllustration(illustrationDrawable);
+      if (getContext().getResources().getBoolean(R.bool.suwUseTabletLayout)) {
+        final Drawable illustrationDrawable = getIllustration(asset, horizontalTile);
+        illustration.setIllustration(illustrationDrawable);
+      } else {
+        // On phones the asset is scaled to the width of the illustration, so let the illustration
+        // decode it at that width instead of at full resolution.
+        illustration.setIllustrationResource(asset);
+      }
     }
   }
 
@@ -273,6 +281,20 @@ public class SetupWizardLayout extends TemplateLayout {
     }
   }
 
+  /**
+   * Sets whether the illustration and its background are drawn from one cached bitmap, which is
+   * only redrawn when the size or layout direction of the illustration changes.
+   *
+   * @see com.android.setupwizardlib.view.Illustration#setFlattened(boolean)
+   */
+  public void setIllustrationFlattened(boolean flattened) {
+    final View view = findManagedViewById(R.id.suw_layout_decor);
+    if (view instanceof Illustration) {
+      final Illustration illustration = (Illustration) view;
+      illustration.setFlattened(flattened);
+    }
+  }
+
   /**
    * Set the top padding of the decor view. If the decor is an Illustration and the aspect ratio is
    * set, this value will be overridden.
@@ -319,6 +341,15 @@ public class SetupWizardLayout extends TemplateLayout {
     setLayoutBackground(backgroundTile);
   }
 
+  private void setIllustration(Drawable asset, Drawable horizontalTile) {
+    final View view = findManagedViewById(R.id.suw_layout_decor);
+    if (view instanceof Illustration) {
+      final Illustration illustration = (Illustration) view;
+      final Drawable illustrationDrawable = getIllustration(asset, horizontalTile);
+      illustration.setIllustration(illustrationDrawable);
+    }
+  }
+
   private Drawable getIllustration(int asset, int horizontalTile) {
     final Context context = getContext();
     final Drawable assetDrawable = context.getResources().getDrawable(asset);
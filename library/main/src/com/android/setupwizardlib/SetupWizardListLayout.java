@@ -89,6 +89,12 @@ public class SetupWizardListLayout extends SetupWizardLayout {
     listMixin.onLayout();
   }
 
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    listMixin.onAttachedToWindow();
+  }
+
   public ListView getListView() {
     return listMixin.getListView();
   }
@@ -17,6 +17,7 @@
 package com.android.setupwizardlib.items;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.util.AttributeSet;
 
 /**
@@ -33,6 +34,11 @@ public abstract class AbstractItem extends AbstractItemHierarchy implements IIte
     super(context, attrs);
   }
 
+  /** @see AbstractItemHierarchy#AbstractItemHierarchy(TypedArray, int) */
+  protected AbstractItem(TypedArray a, int idIndex) {
+    super(a, idIndex);
+  }
+
   @Override
   public int getCount() {
     return 1;
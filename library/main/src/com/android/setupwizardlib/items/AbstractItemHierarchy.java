@@ -43,6 +43,17 @@ public abstract class AbstractItemHierarchy implements ItemHierarchy {
     a.recycle();
   }
 
+  /**
+   * Constructor for subclasses inflated from XML which resolve {@code android:id} as part of their
+   * own styleable, so that the attributes of the item are only resolved once.
+   *
+   * @param a The attributes resolved for this item.
+   * @param idIndex The index of {@code android:id} in {@code a}.
+   */
+  protected AbstractItemHierarchy(TypedArray a, int idIndex) {
+    id = a.getResourceId(idIndex, 0);
+  }
+
   public void setId(int id) {
     this.id = id;
   }
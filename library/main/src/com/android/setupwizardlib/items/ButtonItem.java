@@ -49,8 +49,11 @@ public class ButtonItem extends AbstractItem implements View.OnClickListener {
   }
 
   public ButtonItem(Context context, AttributeSet attrs) {
-    super(context, attrs);
-    TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SuwButtonItem);
+    this(context.obtainStyledAttributes(attrs, R.styleable.SuwButtonItem));
+  }
+
+  private ButtonItem(TypedArray a) {
+    super(a, R.styleable.SuwButtonItem_android_id);
     enabled = a.getBoolean(R.styleable.SuwButtonItem_android_enabled, true);
     text = a.getText(R.styleable.SuwButtonItem_android_text);
     theme = a.getResourceId(R.styleable.SuwButtonItem_android_theme, R.style.SuwButtonItem);
@@ -17,13 +17,20 @@
 package com.android.setupwizardlib.items;
 
 import android.content.Context;
+import android.content.res.Resources.Theme;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Drawable.ConstantState;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.DrawableRes;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 import com.android.setupwizardlib.R;
+import java.util.WeakHashMap;
 
 /**
  * Definition of an item in an {@link ItemHierarchy}. An item is usually defined in XML and inflated
@@ -31,8 +38,56 @@ import com.android.setupwizardlib.R;
  */
 public class Item extends AbstractItem {
 
+  /* static section */
+
+  /**
+   * Constant states of lazily loaded icons, keyed by the theme they are resolved against and then
+   * by their drawable resource ID. Items showing the same icon share the constant state, and
+   * therefore the underlying bitmap, of the first drawable loaded.
+   */
+  private static final WeakHashMap<Theme, SparseArray<ConstantState>> iconCache =
+      new WeakHashMap<>();
+
+  /**
+   * Loads the drawable {@code iconRes} in the given context, sharing the constant state with
+   * other icons previously loaded from the same resource and theme.
+   */
+  static Drawable loadIcon(Context context, @DrawableRes int iconRes) {
+    final Theme theme = context.getTheme();
+    synchronized (iconCache) {
+      SparseArray<ConstantState> themeCache = iconCache.get(theme);
+      if (themeCache == null) {
+        themeCache = new SparseArray<>();
+        iconCache.put(theme, themeCache);
+      }
+      final ConstantState state = themeCache.get(iconRes);
+      if (state != null) {
+        if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+          return state.newDrawable(context.getResources(), theme);
+        } else {
+          return state.newDrawable(context.getResources());
+        }
+      }
+
+      final Drawable drawable;
+      if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+        drawable = context.getResources().getDrawable(iconRes, theme);
+      } else {
+        drawable = context.getResources().getDrawable(iconRes);
+      }
+      final ConstantState newState = drawable != null ? drawable.getConstantState() : null;
+      if (newState != null) {
+        themeCache.put(iconRes, newState);
+      }
+      return drawable;
+    }
+  }
+
+  /* non-static section */
+
   private boolean enabled = true;
   private Drawable icon;
+  @DrawableRes private int iconRes;
   private int layoutRes;
   private CharSequence summary;
   private CharSequence title;
@@ -44,15 +99,44 @@ public class Item extends AbstractItem {
   }
 
   public Item(Context context, AttributeSet attrs) {
-    super(context, attrs);
-    TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SuwItem);
+    this(obtainItemAttributes(context, attrs), true /* recycle */);
+  }
+
+  /**
+   * Constructor for subclasses inflated from XML. Subclasses should read their attributes from the
+   * same {@code a}, rather than resolving another styleable, so that the attributes of each item
+   * are only resolved once. The caller is responsible for recycling {@code a}.
+   *
+   * @param a The attributes obtained using {@link #obtainItemAttributes(Context, AttributeSet)}.
+   */
+  protected Item(TypedArray a) {
+    this(a, false /* recycle */);
+  }
+
+  private Item(TypedArray a, boolean recycle) {
+    super(a, R.styleable.SuwItem_android_id);
     enabled = a.getBoolean(R.styleable.SuwItem_android_enabled, true);
-    icon = a.getDrawable(R.styleable.SuwItem_android_icon);
+    if (a.getBoolean(R.styleable.SuwItem_suwLazyIcon, false)) {
+      iconRes = a.getResourceId(R.styleable.SuwItem_android_icon, 0);
+    }
+    if (iconRes == 0) {
+      icon = a.getDrawable(R.styleable.SuwItem_android_icon);
+    }
     title = a.getText(R.styleable.SuwItem_android_title);
     summary = a.getText(R.styleable.SuwItem_android_summary);
     layoutRes = a.getResourceId(R.styleable.SuwItem_android_layout, getDefaultLayoutResource());
     visible = a.getBoolean(R.styleable.SuwItem_android_visible, true);
-    a.recycle();
+    if (recycle) {
+      a.recycle();
+    }
+  }
+
+  /**
+   * Resolves the {@code SuwItem} attributes, which include the attributes of all the items in this
+   * library, for an item inflated from XML.
+   */
+  protected static TypedArray obtainItemAttributes(Context context, AttributeSet attrs) {
+    return context.obtainStyledAttributes(attrs, R.styleable.SuwItem);
   }
 
   protected int getDefaultLayoutResource() {
@@ -76,9 +160,28 @@ public class Item extends AbstractItem {
 
   public void setIcon(Drawable icon) {
     this.icon = icon;
+    iconRes = 0;
     notifyItemChanged();
   }
 
+  /**
+   * Sets the icon of this item from a drawable resource. The drawable is not loaded until this item
+   * is first bound to a view, and is shared with other items showing the same icon in the same
+   * theme. This is the same as setting {@code app:suwLazyIcon="true"} on an item inflated from
+   * XML.
+   *
+   * @param iconRes The drawable resource ID of the icon, or 0 to remove the icon.
+   */
+  public void setIcon(@DrawableRes int iconRes) {
+    icon = null;
+    this.iconRes = iconRes;
+    notifyItemChanged();
+  }
+
+  /**
+   * @return The icon of this item. If the icon is set from a resource using {@link #setIcon(int)}
+   *     or {@code app:suwLazyIcon}, this returns null until the item has been bound to a view.
+   */
   public Drawable getIcon() {
     return icon;
   }
@@ -146,6 +249,9 @@ public class Item extends AbstractItem {
       summaryView.setVisibility(View.GONE);
     }
 
+    if (icon == null && iconRes != 0) {
+      icon = loadIcon(view.getContext(), iconRes);
+    }
     final View iconContainer = view.findViewById(R.id.suw_items_icon_container);
     final Drawable icon = getIcon();
     if (icon != null) {
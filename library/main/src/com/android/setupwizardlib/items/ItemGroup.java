@@ -21,6 +21,7 @@ import android.util.AttributeSet;
 import android.util.Log;
 import android.util.SparseIntArray;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ItemGroup extends AbstractItemHierarchy
@@ -145,6 +146,67 @@ public class ItemGroup extends AbstractItemHierarchy
     return false;
   }
 
+  /**
+   * Add the given child hierarchies to this item group, starting at {@code index}. Compared to
+   * calling {@link #addChild(ItemHierarchy)} repeatedly, this method only recalculates the item
+   * positions once and notifies observers with a single range insertion.
+   *
+   * @param index The index in the list of child hierarchies to insert the new children at.
+   * @param newChildren The child hierarchies to add.
+   * @throws IndexOutOfBoundsException If {@code index} is out of range.
+   */
+  public void addChildren(int index, Collection<? extends ItemHierarchy> newChildren) {
+    if (newChildren.isEmpty()) {
+      return;
+    }
+    children.addAll(index, newChildren);
+    dirty = true;
+
+    int insertedCount = 0;
+    for (ItemHierarchy child : newChildren) {
+      child.registerObserver(this);
+      insertedCount += child.getCount();
+    }
+    if (insertedCount > 0) {
+      notifyItemRangeInserted(getChildPosition(index), insertedCount);
+    }
+  }
+
+  /**
+   * Remove the child hierarchies between {@code fromIndex}, inclusive, and {@code toIndex},
+   * exclusive. Observers are notified with a single range removal.
+   *
+   * @throws IndexOutOfBoundsException If {@code fromIndex} or {@code toIndex} is out of range.
+   */
+  public void removeChildren(int fromIndex, int toIndex) {
+    final List<ItemHierarchy> removed = children.subList(fromIndex, toIndex);
+    if (removed.isEmpty()) {
+      return;
+    }
+    final int removedPosition = getChildPosition(fromIndex);
+
+    int removedCount = 0;
+    for (ItemHierarchy child : removed) {
+      child.unregisterObserver(this);
+      removedCount += child.getCount();
+    }
+    removed.clear();
+    dirty = true;
+    if (removedCount > 0) {
+      notifyItemRangeRemoved(removedPosition, removedCount);
+    }
+  }
+
+  /**
+   * Replace all the children of this item group with {@code newChildren}. Observers are notified
+   * with at most one range removal for the previous children followed by one range insertion for
+   * the new ones.
+   */
+  public void setChildren(List<? extends ItemHierarchy> newChildren) {
+    removeChildren(0, children.size());
+    addChildren(0, newChildren);
+  }
+
   /** Remove all children from this hierarchy. */
   public void clear() {
     if (children.isEmpty()) {
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.items;
+
+import androidx.annotation.LayoutRes;
+import android.view.View;
+import android.widget.TextView;
+import com.android.setupwizardlib.R;
+import java.util.Arrays;
+
+/**
+ * A compact item hierarchy for large lists of homogeneous title and summary rows. Instead of
+ * keeping one {@link Item} per row, the titles, summaries, enabled flags, IDs and layout resources
+ * of the rows are stored in parallel arrays.
+ *
+ * <p>{@link #getItemAt(int)} returns a small {@link RowItem} handle for the requested row, which
+ * only stores the row index. It is created the first time the row is accessed and reused after
+ * that. A handle follows its row when rows before it are removed, so adapters can keep it and pass
+ * it to their item selection listeners. The handle of a removed row is disabled.
+ */
+public class ItemTable extends AbstractItemHierarchy {
+
+  private static final int DEFAULT_CAPACITY = 10;
+
+  private CharSequence[] titles;
+  private CharSequence[] summaries;
+  private boolean[] enabled;
+  private int[] ids;
+  private int[] layoutResources;
+  private RowItem[] rowItems;
+  private int size = 0;
+
+  public ItemTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** @param initialCapacity The number of rows to allocate space for up front. */
+  public ItemTable(int initialCapacity) {
+    super();
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Invalid capacity " + initialCapacity);
+    }
+    titles = new CharSequence[initialCapacity];
+    summaries = new CharSequence[initialCapacity];
+    enabled = new boolean[initialCapacity];
+    ids = new int[initialCapacity];
+    layoutResources = new int[initialCapacity];
+    rowItems = new RowItem[initialCapacity];
+  }
+
+  /**
+   * Add an enabled row with the default layout and no ID to the end of this table.
+   *
+   * @return The index of the new row.
+   */
+  public int addRow(CharSequence title, CharSequence summary) {
+    return addRow(0, title, summary, true, R.layout.suw_items_default);
+  }
+
+  /**
+   * Add a row to the end of this table.
+   *
+   * @param id The ID of the row, which is also used as the ID of its view. Can be 0.
+   * @param title The title of the row.
+   * @param summary The summary of the row, or null if the row has no summary.
+   * @param enabled Whether the row is enabled.
+   * @param layoutResource The layout to inflate for the row. The layout should contain views with
+   *     {@code @id/suw_items_title} and {@code @id/suw_items_summary}, similar to {@link Item}.
+   * @return The index of the new row.
+   */
+  public int addRow(
+      int id,
+      CharSequence title,
+      CharSequence summary,
+      boolean enabled,
+      @LayoutRes int layoutResource) {
+    ensureCapacity(size + 1);
+    final int row = size;
+    ids[row] = id;
+    titles[row] = title;
+    summaries[row] = summary;
+    this.enabled[row] = enabled;
+    layoutResources[row] = layoutResource;
+    size++;
+    notifyItemRangeInserted(row, 1);
+    return row;
+  }
+
+  /** Remove the row at the given index, shifting all subsequent rows up by one. */
+  public void removeRow(int row) {
+    checkRow(row);
+    if (rowItems[row] != null) {
+      rowItems[row].row = -1;
+    }
+    final int moved = size - row - 1;
+    if (moved > 0) {
+      System.arraycopy(ids, row + 1, ids, row, moved);
+      System.arraycopy(titles, row + 1, titles, row, moved);
+      System.arraycopy(summaries, row + 1, summaries, row, moved);
+      System.arraycopy(enabled, row + 1, enabled, row, moved);
+      System.arraycopy(layoutResources, row + 1, layoutResources, row, moved);
+      System.arraycopy(rowItems, row + 1, rowItems, row, moved);
+      for (int i = row; i < row + moved; i++) {
+        if (rowItems[i] != null) {
+          rowItems[i].row = i;
+        }
+      }
+    }
+    size--;
+    // Release the references to the text and the item of the last row
+    titles[size] = null;
+    summaries[size] = null;
+    rowItems[size] = null;
+    notifyItemRangeRemoved(row, 1);
+  }
+
+  /** Remove all rows from this table. */
+  public void clear() {
+    if (size == 0) {
+      return;
+    }
+    final int removed = size;
+    for (int i = 0; i < size; i++) {
+      if (rowItems[i] != null) {
+        rowItems[i].row = -1;
+      }
+    }
+    Arrays.fill(titles, 0, size, null);
+    Arrays.fill(summaries, 0, size, null);
+    Arrays.fill(rowItems, 0, size, null);
+    size = 0;
+    notifyItemRangeRemoved(0, removed);
+  }
+
+  /**
+   * Make sure the table can hold at least {@code capacity} rows without growing its arrays. This
+   * can be used before adding a large number of rows.
+   */
+  public void ensureCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+    final int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    titles = Arrays.copyOf(titles, newCapacity);
+    summaries = Arrays.copyOf(summaries, newCapacity);
+    enabled = Arrays.copyOf(enabled, newCapacity);
+    layoutResources = Arrays.copyOf(layoutResources, newCapacity);
+    rowItems = Arrays.copyOf(rowItems, newCapacity);
+  }
+
+  public void setTitle(int row, CharSequence title) {
+    checkRow(row);
+    titles[row] = title;
+    notifyItemRangeChanged(row, 1);
+  }
+
+  public CharSequence getTitle(int row) {
+    checkRow(row);
+    return titles[row];
+  }
+
+  public void setSummary(int row, CharSequence summary) {
+    checkRow(row);
+    summaries[row] = summary;
+    notifyItemRangeChanged(row, 1);
+  }
+
+  public CharSequence getSummary(int row) {
+    checkRow(row);
+    return summaries[row];
+  }
+
+  public void setEnabled(int row, boolean enabled) {
+    checkRow(row);
+    this.enabled[row] = enabled;
+    notifyItemRangeChanged(row, 1);
+  }
+
+  public boolean isEnabled(int row) {
+    checkRow(row);
+    return enabled[row];
+  }
+
+  public int getRowId(int row) {
+    checkRow(row);
+    return ids[row];
+  }
+
+  public int getLayoutResource(int row) {
+    checkRow(row);
+    return layoutResources[row];
+  }
+
+  /** @return The index of the first row with the given ID, or -1 if no row has that ID. */
+  public int indexOfId(int id) {
+    for (int i = 0; i < size; i++) {
+      if (ids[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int getCount() {
+    return size;
+  }
+
+  /**
+   * @return The {@link RowItem} representing the row at {@code position}. The same instance is
+   *     returned for a row until it is removed.
+   */
+  @Override
+  public IItem getItemAt(int position) {
+    checkRow(position);
+    RowItem rowItem = rowItems[position];
+    if (rowItem == null) {
+      rowItem = new RowItem(position);
+      rowItems[position] = rowItem;
+    }
+    return rowItem;
+  }
+
+  /**
+   * Rows in an item table are not item hierarchies by themselves, so this only returns this table
+   * if the ID matches. Use {@link #indexOfId(int)} to find a row by its ID.
+   */
+  @Override
+  public ItemHierarchy findItemById(int id) {
+    if (id == getId()) {
+      return this;
+    }
+    return null;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("size=" + size + "; index=" + row);
+    }
+  }
+
+  /**
+   * The handle of a row returned from {@link #getItemAt(int)}. It only stores the index of its row,
+   * which is -1 once the row is removed, and reads everything else from the table.
+   */
+  public final class RowItem implements IItem {
+
+    private int row;
+
+    RowItem(int row) {
+      this.row = row;
+    }
+
+    /** @return The current index of this row in the table, or -1 if the row has been removed. */
+    public int getRow() {
+      return row;
+    }
+
+    /** @return The ID of this row, or 0 if the row has been removed. */
+    public int getId() {
+      return row >= 0 ? ids[row] : 0;
+    }
+
+    @Override
+    public int getLayoutResource() {
+      return row >= 0 ? layoutResources[row] : R.layout.suw_items_default;
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return row >= 0 && enabled[row];
+    }
+
+    @Override
+    public void onBindView(View view) {
+      if (row < 0) {
+        return;
+      }
+      TextView label = (TextView) view.findViewById(R.id.suw_items_title);
+      label.setText(titles[row]);
+
+      TextView summaryView = (TextView) view.findViewById(R.id.suw_items_summary);
+      CharSequence summary = summaries[row];
+      if (summary != null && summary.length() > 0) {
+        summaryView.setText(summary);
+        summaryView.setVisibility(View.VISIBLE);
+      } else {
+        summaryView.setVisibility(View.GONE);
+      }
+
+      final View iconContainer = view.findViewById(R.id.suw_items_icon_container);
+      if (iconContainer != null) {
+        iconContainer.setVisibility(View.GONE);
+      }
+
+      view.setId(ids[row]);
+    }
+  }
+}
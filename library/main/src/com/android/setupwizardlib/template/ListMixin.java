@@ -49,6 +49,9 @@ public class ListMixin implements Mixin {
   private int dividerInsetStart;
   private int dividerInsetEnd;
 
+  /** Resource ID of the deferred {@code android:entries}, or 0 if there is nothing to inflate. */
+  private int pendingEntries;
+
   /** @param layout The layout this mixin belongs to. */
   public ListMixin(
       @NonNull TemplateLayout layout, @Nullable AttributeSet attrs, @AttrRes int defStyleAttr) {
@@ -60,8 +63,10 @@ public class ListMixin implements Mixin {
 
     final int entries = a.getResourceId(R.styleable.SuwListMixin_android_entries, 0);
     if (entries != 0) {
-      final ItemGroup inflated = (ItemGroup) new ItemInflater(context).inflate(entries);
-      setAdapter(new ItemAdapter(inflated));
+      pendingEntries = entries;
+      if (!a.getBoolean(R.styleable.SuwListMixin_suwDeferEntries, false)) {
+        inflatePendingEntries();
+      }
     }
     int dividerInset = a.getDimensionPixelSize(R.styleable.SuwListMixin_suwDividerInset, -1);
     if (dividerInset != -1) {
@@ -107,13 +112,35 @@ public class ListMixin implements Mixin {
     }
   }
 
+  /**
+   * List mixin inflates deferred {@code android:entries} when the template is first attached to a
+   * window. This method should be called when {@link View#onAttachedToWindow()} of the template is
+   * called.
+   */
+  public void onAttachedToWindow() {
+    inflatePendingEntries();
+  }
+
+  private void inflatePendingEntries() {
+    if (pendingEntries != 0) {
+      final int entries = pendingEntries;
+      pendingEntries = 0;
+      final ItemGroup inflated =
+          (ItemGroup) new ItemInflater(templateLayout.getContext()).inflate(entries);
+      setAdapter(new ItemAdapter(inflated));
+    }
+  }
+
   /**
    * Gets the adapter of the list view in this layout. If the adapter is a HeaderViewListAdapter,
-   * this method will unwrap it and return the underlying adapter.
+   * this method will unwrap it and return the underlying adapter. If the inflation of {@code
+   * android:entries} is deferred using {@code app:suwDeferEntries}, calling this method will
+   * inflate the entries.
    *
    * @return The adapter, or {@code null} if there is no list, or if the list has no adapter.
    */
   public ListAdapter getAdapter() {
+    inflatePendingEntries();
     final ListView listView = getListViewInternal();
     if (listView != null) {
       final ListAdapter adapter = listView.getAdapter();
@@ -125,8 +152,12 @@ public class ListMixin implements Mixin {
     return null;
   }
 
-  /** Sets the adapter on the list view in this layout. */
+  /**
+   * Sets the adapter on the list view in this layout. This replaces any {@code android:entries}
+   * whose inflation is still deferred.
+   */
   public void setAdapter(ListAdapter adapter) {
+    pendingEntries = 0;
     final ListView listView = getListViewInternal();
     if (listView != null) {
       listView.setAdapter(adapter);
@@ -24,6 +24,7 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.ResolveInfo;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Drawable.ConstantState;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import androidx.annotation.AnyRes;
@@ -33,7 +34,9 @@ import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.annotation.VisibleForTesting;
 import android.util.Log;
+import android.util.SparseIntArray;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Utilities to discover and interact with partner customizations. An overlay package is one that
@@ -51,8 +54,12 @@ public class Partner {
   private static final String ACTION_PARTNER_CUSTOMIZATION =
       "com.android.setupwizard.action.PARTNER_CUSTOMIZATION";
 
-  private static boolean searched = false;
-  @Nullable private static Partner partner;
+  // Volatile so that the partner can be read without locking once it has been searched for.
+  // partner is always written before searched.
+  private static volatile boolean searched = false;
+  @Nullable private static volatile Partner partner;
+
+  @Nullable private static volatile PreloadedResources preloadedResources;
 
   /**
    * Gets a drawable from partner overlay, or if not available, the drawable from the original
@@ -61,8 +68,15 @@ public class Partner {
    * @see #getResourceEntry(android.content.Context, int)
    */
   public static Drawable getDrawable(Context context, @DrawableRes int id) {
-    final ResourceEntry entry = getResourceEntry(context, id);
-    return entry.resources.getDrawable(entry.id);
+    final Object preloaded = getPreloaded(context, id);
+    if (preloaded instanceof ConstantState) {
+      return ((ConstantState) preloaded).newDrawable();
+    }
+    final Partner partner = Partner.get(context);
+    final int partnerId = getPartnerId(partner, context, id);
+    return partnerId != 0
+        ? partner.resources.getDrawable(partnerId)
+        : context.getResources().getDrawable(id);
   }
 
   /**
@@ -71,16 +85,30 @@ public class Partner {
    * @see #getResourceEntry(android.content.Context, int)
    */
   public static String getString(Context context, @StringRes int id) {
-    final ResourceEntry entry = getResourceEntry(context, id);
-    return entry.resources.getString(entry.id);
+    final Object preloaded = getPreloaded(context, id);
+    if (preloaded instanceof CharSequence) {
+      return preloaded.toString();
+    }
+    final Partner partner = Partner.get(context);
+    final int partnerId = getPartnerId(partner, context, id);
+    return partnerId != 0
+        ? partner.resources.getString(partnerId)
+        : context.getResources().getString(id);
   }
 
   /**
    * Gets a color from partner overlay, or if not available, the color from the original context.
    */
   public static int getColor(Context context, @ColorRes int id) {
-    final ResourceEntry resourceEntry = getResourceEntry(context, id);
-    return resourceEntry.resources.getColor(resourceEntry.id);
+    final Object preloaded = getPreloaded(context, id);
+    if (preloaded instanceof Integer) {
+      return (Integer) preloaded;
+    }
+    final Partner partner = Partner.get(context);
+    final int partnerId = getPartnerId(partner, context, id);
+    return partnerId != 0
+        ? partner.resources.getColor(partnerId)
+        : context.getResources().getColor(id);
   }
 
   /**
@@ -88,8 +116,83 @@ public class Partner {
    * context.
    */
   public static CharSequence getText(Context context, @StringRes int id) {
-    final ResourceEntry entry = getResourceEntry(context, id);
-    return entry.resources.getText(entry.id);
+    final Object preloaded = getPreloaded(context, id);
+    if (preloaded instanceof CharSequence) {
+      return (CharSequence) preloaded;
+    }
+    final Partner partner = Partner.get(context);
+    final int partnerId = getPartnerId(partner, context, id);
+    return partnerId != 0
+        ? partner.resources.getText(partnerId)
+        : context.getResources().getText(id);
+  }
+
+  /**
+   * Loads the given drawable, string and color resources in parallel on the given executor, from
+   * the partner overlay if it overrides them or from the original context otherwise. Later calls to
+   * {@link #getDrawable}, {@link #getString}, {@link #getText} and {@link #getColor} for these
+   * resources are served from memory, as long as the configuration of the context is the same.
+   *
+   * <p>This is typically called from {@code Application.onCreate} with the resources used by the
+   * first screens of the setup flow, and an executor with several threads.
+   */
+  public static void preload(Context context, Executor executor, @AnyRes int... ids) {
+    final Context applicationContext = context.getApplicationContext();
+    final Resources resources = applicationContext.getResources();
+    PreloadedResources preloaded = preloadedResources;
+    if (preloaded == null || !preloaded.isValidFor(resources)) {
+      preloaded = new PreloadedResources(resources.getConfiguration());
+      preloadedResources = preloaded;
+    }
+    final PreloadedResources target = preloaded;
+    for (final int id : ids) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              preloadResource(applicationContext, target, id);
+            }
+          });
+    }
+  }
+
+  private static void preloadResource(
+      Context context, PreloadedResources preloaded, @AnyRes int id) {
+    final Partner partner = Partner.get(context);
+    final int partnerId = getPartnerId(partner, context, id);
+    final Resources res = partnerId != 0 ? partner.resources : context.getResources();
+    final int resId = partnerId != 0 ? partnerId : id;
+    try {
+      final String type = context.getResources().getResourceTypeName(id);
+      switch (type) {
+        case "drawable":
+        case "mipmap":
+          final ConstantState state = res.getDrawable(resId).getConstantState();
+          if (state != null) {
+            preloaded.put(id, state);
+          }
+          break;
+        case "string":
+          preloaded.put(id, res.getText(resId));
+          break;
+        case "color":
+          preloaded.put(id, res.getColor(resId));
+          break;
+        default:
+          Log.w(TAG, "Unable to preload resource of type " + type);
+      }
+    } catch (Resources.NotFoundException e) {
+      Log.w(TAG, "Unable to preload resource " + Integer.toHexString(id), e);
+    }
+  }
+
+  @Nullable
+  private static Object getPreloaded(Context context, @AnyRes int id) {
+    final PreloadedResources preloaded = preloadedResources;
+    if (preloaded == null || !preloaded.isValidFor(context.getResources())) {
+      return null;
+    }
+    return preloaded.get(id);
   }
 
   /**
@@ -104,18 +207,21 @@ public class Partner {
    */
   public static ResourceEntry getResourceEntry(Context context, @AnyRes int id) {
     final Partner partner = Partner.get(context);
-    if (partner != null) {
-      final Resources ourResources = context.getResources();
-      final String name = ourResources.getResourceEntryName(id);
-      final String type = ourResources.getResourceTypeName(id);
-      final int partnerId = partner.getIdentifier(name, type);
-      if (partnerId != 0) {
-        return new ResourceEntry(partner.resources, partnerId, true);
-      }
+    final int partnerId = getPartnerId(partner, context, id);
+    if (partnerId != 0) {
+      return new ResourceEntry(partner.resources, partnerId, true);
     }
     return new ResourceEntry(context.getResources(), id, false);
   }
 
+  /**
+   * @return The ID of the resource in the partner overlay which overrides our resource {@code id},
+   *     or 0 if there is no partner or the partner doesn't override it.
+   */
+  private static int getPartnerId(@Nullable Partner partner, Context context, @AnyRes int id) {
+    return partner != null ? partner.getOverlayId(context.getResources(), id) : 0;
+  }
+
   public static class ResourceEntry {
     public Resources resources;
     public int id;
@@ -133,54 +239,91 @@ public class Partner {
    * by a broadcast receiver declared in the manifest that handles the {@code
    * com.android.setupwizard.action.PARTNER_CUSTOMIZATION} intent action. The overlay package must
    * also be a system package.
+   *
+   * <p>The package manager is only queried on the first call, or by {@link #prefetch}. If that is
+   * still in progress on another thread, this blocks until it completes.
    */
-  public static synchronized Partner get(Context context) {
-    if (!searched) {
-      PackageManager pm = context.getPackageManager();
-      final Intent intent = new Intent(ACTION_PARTNER_CUSTOMIZATION);
-      List<ResolveInfo> receivers;
-      if (VERSION.SDK_INT >= VERSION_CODES.N) {
-        receivers =
-            pm.queryBroadcastReceivers(
-                intent,
-                PackageManager.MATCH_SYSTEM_ONLY
-                    | PackageManager.MATCH_DIRECT_BOOT_AWARE
-                    | PackageManager.MATCH_DIRECT_BOOT_UNAWARE);
-      } else {
-        // On versions before N, direct boot doesn't exist. And the MATCH_SYSTEM_ONLY flag
-        // doesn't exist so we filter for system apps in code below.
-        receivers = pm.queryBroadcastReceivers(intent, 0);
+  public static Partner get(Context context) {
+    if (searched) {
+      return partner;
+    }
+    synchronized (Partner.class) {
+      if (!searched) {
+        partner = findPartner(context);
+        searched = true;
       }
+      return partner;
+    }
+  }
 
-      for (ResolveInfo info : receivers) {
-        if (info.activityInfo == null) {
-          continue;
-        }
-        final ApplicationInfo appInfo = info.activityInfo.applicationInfo;
-        if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
-          try {
-            final Resources res = pm.getResourcesForApplication(appInfo);
-            partner = new Partner(appInfo.packageName, res);
-            break;
-          } catch (NameNotFoundException e) {
-            Log.w(TAG, "Failed to find resources for " + appInfo.packageName);
+  /**
+   * Searches for the partner package on the given executor, so that the package manager queries
+   * don't need to be done on the calling thread when the partner is first used. This is typically
+   * called from {@code Application.onCreate}, before the first screen is inflated.
+   */
+  public static void prefetch(Context context, Executor executor) {
+    if (searched) {
+      return;
+    }
+    final Context applicationContext = context.getApplicationContext();
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            get(applicationContext);
           }
+        });
+  }
+
+  @Nullable
+  private static Partner findPartner(Context context) {
+    PackageManager pm = context.getPackageManager();
+    final Intent intent = new Intent(ACTION_PARTNER_CUSTOMIZATION);
+    List<ResolveInfo> receivers;
+    if (VERSION.SDK_INT >= VERSION_CODES.N) {
+      receivers =
+          pm.queryBroadcastReceivers(
+              intent,
+              PackageManager.MATCH_SYSTEM_ONLY
+                  | PackageManager.MATCH_DIRECT_BOOT_AWARE
+                  | PackageManager.MATCH_DIRECT_BOOT_UNAWARE);
+    } else {
+      // On versions before N, direct boot doesn't exist. And the MATCH_SYSTEM_ONLY flag
+      // doesn't exist so we filter for system apps in code below.
+      receivers = pm.queryBroadcastReceivers(intent, 0);
+    }
+
+    for (ResolveInfo info : receivers) {
+      if (info.activityInfo == null) {
+        continue;
+      }
+      final ApplicationInfo appInfo = info.activityInfo.applicationInfo;
+      if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
+        try {
+          final Resources res = pm.getResourcesForApplication(appInfo);
+          return new Partner(appInfo.packageName, res);
+        } catch (NameNotFoundException e) {
+          Log.w(TAG, "Failed to find resources for " + appInfo.packageName);
         }
       }
-      searched = true;
     }
-    return partner;
+    return null;
   }
 
   @VisibleForTesting
   public static synchronized void resetForTesting() {
     searched = false;
     partner = null;
+    preloadedResources = null;
   }
 
   private final String packageName;
   private final Resources resources;
 
+  // Maps our resource IDs to the IDs in the partner overlay, or 0 if the partner doesn't override
+  // the resource, so that the name lookups are only done once for each resource.
+  private final SparseIntArray overlayIds = new SparseIntArray();
+
   private Partner(String packageName, Resources res) {
     this.packageName = packageName;
     resources = res;
@@ -197,4 +340,20 @@ public class Partner {
   public int getIdentifier(String name, String defType) {
     return resources.getIdentifier(name, defType, packageName);
   }
+
+  private int getOverlayId(Resources ourResources, @AnyRes int id) {
+    synchronized (overlayIds) {
+      final int index = overlayIds.indexOfKey(id);
+      if (index >= 0) {
+        return overlayIds.valueAt(index);
+      }
+    }
+    final String name = ourResources.getResourceEntryName(id);
+    final String type = ourResources.getResourceTypeName(id);
+    final int partnerId = getIdentifier(name, type);
+    synchronized (overlayIds) {
+      overlayIds.put(id, partnerId);
+    }
+    return partnerId;
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.util;
+
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import androidx.annotation.AnyRes;
+import androidx.annotation.Nullable;
+import android.util.SparseArray;
+
+/**
+ * Values of resources loaded ahead of time by {@link Partner#preload}, keyed by our resource ID.
+ * Drawables are stored as their {@link android.graphics.drawable.Drawable.ConstantState}, strings
+ * as {@link CharSequence} and colors as {@link Integer}. The values are only valid for
+ * configurations which select the same resources as the one they were loaded in, e.g. strings of a
+ * different locale are not returned.
+ */
+final class PreloadedResources {
+
+  // Configuration changes which can select different resource values. Other fields, such as the
+  // window bounds of an activity, differ between the application and activity contexts.
+  private static final int RESOURCE_CONFIG_CHANGES =
+      ActivityInfo.CONFIG_MCC
+          | ActivityInfo.CONFIG_MNC
+          | ActivityInfo.CONFIG_LOCALE
+          | ActivityInfo.CONFIG_LAYOUT_DIRECTION
+          | ActivityInfo.CONFIG_DENSITY
+          | ActivityInfo.CONFIG_UI_MODE
+          | ActivityInfo.CONFIG_ORIENTATION
+          | ActivityInfo.CONFIG_FONT_SCALE
+          | ActivityInfo.CONFIG_SMALLEST_SCREEN_SIZE;
+
+  private final Configuration configuration;
+  private final SparseArray<Object> values = new SparseArray<>();
+
+  PreloadedResources(Configuration configuration) {
+    this.configuration = new Configuration(configuration);
+  }
+
+  /** @return True if values loaded in this configuration can be used with {@code resources}. */
+  boolean isValidFor(Resources resources) {
+    return (configuration.diff(resources.getConfiguration()) & RESOURCE_CONFIG_CHANGES) == 0;
+  }
+
+  void put(@AnyRes int id, Object value) {
+    synchronized (values) {
+      values.put(id, value);
+    }
+  }
+
+  @Nullable
+  Object get(@AnyRes int id) {
+    synchronized (values) {
+      return values.get(id);
+    }
+  }
+}
@@ -20,11 +20,13 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.DrawableRes;
 import android.util.AttributeSet;
 import android.util.LayoutDirection;
 import android.view.Gravity;
@@ -46,10 +48,25 @@ public class Illustration extends FrameLayout {
   private float baselineGridSize;
   private Drawable background;
   private Drawable illustration;
+  // Resource of the illustration to be decoded at the width of this view, or 0 if not set
+  @DrawableRes private int illustrationResource;
+  // The layout width the illustration resource was last decoded for
+  private int illustrationResourceWidth;
   private final Rect viewBounds = new Rect();
   private final Rect illustrationBounds = new Rect();
   private float scale = 1.0f;
   private float aspectRatio = 0.0f;
+  private boolean flattened = false;
+  // The background and illustration drawn into one bitmap, if flattened
+  private Bitmap flattenedBitmap;
+  private int flattenedLayoutDirection;
+  // Top padding for the aspect ratio, and the width measure spec and aspect ratio it was computed
+  // for
+  private int illustrationHeight;
+  private int illustrationHeightWidthMeasureSpec;
+  private float illustrationHeightAspectRatio = 0.0f;
+  // Whether requestLayout calls should be ignored, while the padding is set during measure
+  private boolean ignoreRequestLayout = false;
 
   public Illustration(Context context) {
     super(context);
@@ -74,11 +91,16 @@ public class Illustration extends FrameLayout {
       TypedArray a =
           getContext().obtainStyledAttributes(attrs, R.styleable.SuwIllustration, defStyleAttr, 0);
       aspectRatio = a.getFloat(R.styleable.SuwIllustration_suwAspectRatio, 0.0f);
+      flattened = a.getBoolean(R.styleable.SuwIllustration_suwFlattened, false);
       a.recycle();
     }
     // Number of pixels of the 8dp baseline grid as defined in material design specs
     baselineGridSize = getResources().getDisplayMetrics().density * 8;
     setWillNotDraw(false);
+    if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+      //noinspection AndroidLintInlinedApi
+      setOutlineProvider(ViewOutlineProvider.BOUNDS);
+    }
   }
 
   /**
@@ -94,6 +116,7 @@ public class Illustration extends FrameLayout {
       return;
     }
     this.background = background;
+    flattenedBitmap = null;
     invalidate();
     requestLayout();
   }
@@ -103,10 +126,32 @@ public class Illustration extends FrameLayout {
    * and height defined and will be scaled to fit the width of the view.
    */
   public void setIllustration(Drawable illustration) {
+    illustrationResource = 0;
     if (illustration == this.illustration) {
       return;
     }
     this.illustration = illustration;
+    flattenedBitmap = null;
+    invalidate();
+    requestLayout();
+  }
+
+  /**
+   * Sets the resource used as the illustration. Unlike {@link #setIllustration(Drawable)}, bitmap
+   * resources are decoded when this view is laid out, subsampled to the smallest size that still
+   * covers the width of this view, instead of being decoded at full resolution and scaled down
+   * when drawn. The illustration is mirrored in RTL layouts.
+   *
+   * @param resId Resource ID of the illustration drawable.
+   */
+  public void setIllustrationResource(@DrawableRes int resId) {
+    if (resId == illustrationResource) {
+      return;
+    }
+    illustrationResource = resId;
+    illustrationResourceWidth = 0;
+    illustration = null;
+    flattenedBitmap = null;
     invalidate();
     requestLayout();
   }
@@ -121,10 +166,34 @@ public class Illustration extends FrameLayout {
    */
   public void setAspectRatio(float aspectRatio) {
     this.aspectRatio = aspectRatio;
+    flattenedBitmap = null;
     invalidate();
     requestLayout();
   }
 
+  /**
+   * Sets whether the background and the illustration are drawn into one cached bitmap. The bitmap
+   * is only drawn again when the size or layout direction of this view changes, or when the
+   * drawables are replaced, so that each draw of this view is a single bitmap blit instead of
+   * drawing the scaled and possibly mirrored drawables. This uses memory for a bitmap of the size
+   * of this view, and is intended for static illustrations such as the layered tablet
+   * illustrations.
+   *
+   * @param flattened True to draw the background and illustration from a cached bitmap.
+   */
+  public void setFlattened(boolean flattened) {
+    if (this.flattened != flattened) {
+      this.flattened = flattened;
+      flattenedBitmap = null;
+      invalidate();
+    }
+  }
+
+  /** @return True if the background and the illustration are drawn from a cached bitmap. */
+  public boolean isFlattened() {
+    return flattened;
+  }
+
   @Override
   @Deprecated
   public void setForeground(Drawable d) {
@@ -134,22 +203,49 @@ public class Illustration extends FrameLayout {
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
     if (aspectRatio != 0.0f) {
-      int parentWidth = MeasureSpec.getSize(widthMeasureSpec);
-      int illustrationHeight = (int) (parentWidth / aspectRatio);
-      illustrationHeight = (int) (illustrationHeight - (illustrationHeight % baselineGridSize));
-      setPadding(0, illustrationHeight, 0, 0);
-    }
-    if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
-      //noinspection AndroidLintInlinedApi
-      setOutlineProvider(ViewOutlineProvider.BOUNDS);
+      if (widthMeasureSpec != illustrationHeightWidthMeasureSpec
+          || aspectRatio != illustrationHeightAspectRatio) {
+        int parentWidth = MeasureSpec.getSize(widthMeasureSpec);
+        illustrationHeight = (int) (parentWidth / aspectRatio);
+        illustrationHeight = (int) (illustrationHeight - (illustrationHeight % baselineGridSize));
+        illustrationHeightWidthMeasureSpec = widthMeasureSpec;
+        illustrationHeightAspectRatio = aspectRatio;
+      }
+      if (getPaddingTop() != illustrationHeight
+          || getPaddingLeft() != 0
+          || getPaddingRight() != 0
+          || getPaddingBottom() != 0) {
+        // This view is already being measured with the new padding, so don't request another
+        // layout pass when setting it.
+        ignoreRequestLayout = true;
+        try {
+          setPadding(0, illustrationHeight, 0, 0);
+        } finally {
+          ignoreRequestLayout = false;
+        }
+      }
     }
     super.onMeasure(widthMeasureSpec, heightMeasureSpec);
   }
 
+  @Override
+  public void requestLayout() {
+    if (!ignoreRequestLayout) {
+      super.requestLayout();
+    }
+  }
+
   @Override
   protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
     final int layoutWidth = right - left;
     final int layoutHeight = bottom - top;
+    if (illustrationResource != 0 && layoutWidth != illustrationResourceWidth) {
+      illustration = IllustrationLoader.load(getResources(), illustrationResource, layoutWidth);
+      if (VERSION.SDK_INT >= VERSION_CODES.KITKAT) {
+        illustration.setAutoMirrored(true);
+      }
+      illustrationResourceWidth = layoutWidth;
+    }
     if (illustration != null) {
       int intrinsicWidth = illustration.getIntrinsicWidth();
       int intrinsicHeight = illustration.getIntrinsicHeight();
@@ -182,6 +278,42 @@ public class Illustration extends FrameLayout {
 
   @Override
   public void onDraw(Canvas canvas) {
+    if (flattened) {
+      final Bitmap bitmap = getFlattenedBitmap();
+      if (bitmap != null) {
+        canvas.drawBitmap(bitmap, 0, 0, null);
+      }
+    } else {
+      drawIllustration(canvas);
+    }
+    super.onDraw(canvas);
+  }
+
+  /**
+   * @return The background and illustration drawn into a bitmap of the size of this view, or null
+   *     if this view has no size. The bitmap is drawn again if the size or layout direction has
+   *     changed since it was last drawn.
+   */
+  private Bitmap getFlattenedBitmap() {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    final int layoutDirection =
+        VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR1 ? getLayoutDirection() : 0;
+    if (flattenedBitmap == null
+        || flattenedBitmap.getWidth() != width
+        || flattenedBitmap.getHeight() != height
+        || flattenedLayoutDirection != layoutDirection) {
+      flattenedBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      flattenedLayoutDirection = layoutDirection;
+      drawIllustration(new Canvas(flattenedBitmap));
+    }
+    return flattenedBitmap;
+  }
+
+  private void drawIllustration(Canvas canvas) {
     if (background != null) {
       // Draw the background filling parts not covered by the illustration
       canvas.save();
@@ -209,7 +341,6 @@ public class Illustration extends FrameLayout {
       illustration.draw(canvas);
       canvas.restore();
     }
-    super.onDraw(canvas);
   }
 
   private boolean shouldMirrorDrawable(Drawable drawable, int layoutDirection) {
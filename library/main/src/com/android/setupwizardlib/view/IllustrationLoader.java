@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.VisibleForTesting;
+import android.util.LruCache;
+
+/**
+ * Loads illustration drawables decoded at the width they are displayed at. Bitmap resources are
+ * first decoded for their bounds only, and then subsampled by the largest power of two which still
+ * leaves at least the target width, so that a phone doesn't decode an illustration at a much larger
+ * resolution than it displays. Other drawables are loaded from resources as is.
+ */
+final class IllustrationLoader {
+
+  // Decoded bitmaps are kept within this budget, so that navigating between screens with the same
+  // illustration doesn't decode it again.
+  private static final int CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+
+  private static final LruCache<Long, Bitmap> bitmapCache =
+      new LruCache<Long, Bitmap>(CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(Long key, Bitmap bitmap) {
+          return bitmap.getByteCount();
+        }
+      };
+
+  // Configuration changes which can select a different variant of a drawable resource
+  private static final int RESOURCE_CONFIG_CHANGES =
+      ActivityInfo.CONFIG_MCC
+          | ActivityInfo.CONFIG_MNC
+          | ActivityInfo.CONFIG_LOCALE
+          | ActivityInfo.CONFIG_LAYOUT_DIRECTION
+          | ActivityInfo.CONFIG_DENSITY
+          | ActivityInfo.CONFIG_UI_MODE
+          | ActivityInfo.CONFIG_ORIENTATION
+          | ActivityInfo.CONFIG_SMALLEST_SCREEN_SIZE;
+
+  // The configuration of the resources the cached bitmaps were decoded from
+  private static Configuration cacheConfiguration;
+
+  /**
+   * Loads the drawable resource {@code resId} for a view of the given width.
+   *
+   * @param targetWidth The width in pixels the drawable will be displayed at.
+   */
+  static Drawable load(Resources res, @DrawableRes int resId, int targetWidth) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    // Decode in the density of the resource. The density is adjusted for the sample size below,
+    // so that the intrinsic size of the drawable is the same as the full size bitmap.
+    options.inScaled = false;
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeResource(res, resId, options);
+    if (options.outWidth <= 0 || targetWidth <= 0) {
+      // Not a bitmap, e.g. a vector drawable
+      return res.getDrawable(resId);
+    }
+
+    final int sampleSize = getSampleSize(options.outWidth, targetWidth);
+    final long key = ((long) resId << 32) | sampleSize;
+    clearCacheIfConfigurationChanged(res.getConfiguration());
+    Bitmap bitmap = bitmapCache.get(key);
+    if (bitmap == null) {
+      options.inJustDecodeBounds = false;
+      options.inSampleSize = sampleSize;
+      bitmap = BitmapFactory.decodeResource(res, resId, options);
+      if (bitmap == null) {
+        return res.getDrawable(resId);
+      }
+      bitmap.setDensity(bitmap.getDensity() / sampleSize);
+      bitmapCache.put(key, bitmap);
+    }
+    return new BitmapDrawable(res, bitmap);
+  }
+
+  /**
+   * Clears the cached bitmaps if {@code configuration} can select different resources than the one
+   * they were decoded in, for example after rotating to landscape or switching to night mode.
+   */
+  private static void clearCacheIfConfigurationChanged(Configuration configuration) {
+    if (cacheConfiguration == null
+        || (cacheConfiguration.diff(configuration) & RESOURCE_CONFIG_CHANGES) != 0) {
+      bitmapCache.evictAll();
+      cacheConfiguration = new Configuration(configuration);
+    }
+  }
+
+  /**
+   * @return The largest power of two sample size, which decodes a bitmap of {@code width} into a
+   *     bitmap at least {@code targetWidth} wide.
+   */
+  @VisibleForTesting
+  static int getSampleSize(int width, int targetWidth) {
+    int sampleSize = 1;
+    while (width / (sampleSize * 2) >= targetWidth) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private IllustrationLoader() {}
+}
@@ -18,16 +18,21 @@ package com.android.setupwizardlib.view;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.graphics.drawable.Animatable;
 import android.media.MediaPlayer;
+import android.media.MediaPlayer.OnCompletionListener;
 import android.media.MediaPlayer.OnErrorListener;
 import android.media.MediaPlayer.OnInfoListener;
 import android.media.MediaPlayer.OnPreparedListener;
 import android.media.MediaPlayer.OnSeekCompleteListener;
-import android.net.Uri;
 import android.os.Build.VERSION_CODES;
+import android.os.SystemClock;
 import androidx.annotation.Nullable;
 import androidx.annotation.RawRes;
 import androidx.annotation.VisibleForTesting;
@@ -37,8 +42,8 @@ import android.view.Surface;
 import android.view.TextureView;
 import android.view.TextureView.SurfaceTextureListener;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import com.android.setupwizardlib.R;
-import java.io.IOException;
 
 /**
  * A view for displaying videos in a continuous loop (without audio). This is typically used for
@@ -46,7 +51,18 @@ import java.io.IOException;
  *
  * <p>The video can be specified using {@code app:suwVideo}, specifying the raw resource to the mp4
  * video. Optionally, {@code app:suwLoopStartMs} can be used to specify which part of the video it
- * should loop back to
+ * should loop back to, or {@code app:suwLoopVideo} can specify a separate video which is looped
+ * after {@code app:suwVideo} has played once as an intro. The next segment is prepared in a second
+ * media player while the current one plays, so that looping doesn't need to wait for a seek or a
+ * prepare.
+ *
+ * <p>If {@code app:suwVideoPoster} is true, the first frame of the video is cached and shown while
+ * the video is being prepared, instead of leaving the view empty until the video starts.
+ *
+ * <p>Several resolutions of the video can be provided with {@code app:suwVideoVariants}, an array
+ * of raw resources ordered from the smallest to the largest, and {@code app:suwVideoVariantWidths},
+ * an integer array of the width in pixels of each of them. The smallest variant which is at least
+ * as wide as the view is played.
  *
  * <p>For optimal file size, use avconv or other video compression tool to remove the unused audio
  * track and reduce the size of your video asset: avconv -i [input file] -vcodec h264 -crf 20 -an
@@ -59,10 +75,21 @@ public class IllustrationVideoView extends TextureView
         OnPreparedListener,
         OnSeekCompleteListener,
         OnInfoListener,
-        OnErrorListener {
+        OnErrorListener,
+        OnCompletionListener {
 
   private static final String TAG = "IllustrationVideoView";
 
+  /** Listener for the playback statistics of the video. */
+  public interface PlaybackStatsListener {
+
+    /**
+     * Called when the first frame of the video is rendered, and again with the final statistics
+     * when the view releases its media player.
+     */
+    void onPlaybackStats(VideoPlaybackStats stats);
+  }
+
   protected float mAspectRatio = 1.0f; // initial guess until we know
 
   @Nullable // Can be null when media player fails to initialize
@@ -74,15 +101,97 @@ public class IllustrationVideoView extends TextureView
 
   @VisibleForTesting Surface surface;
 
+  @Nullable private VideoPlayerPool.PooledPlayer pooledPlayer;
+
   private boolean prepared;
 
+  private boolean posterEnabled;
+
+  @Nullable private int[] videoVariants;
+
+  @Nullable private int[] videoVariantWidths;
+
+  private String videoVariantsPackageName;
+
+  private @RawRes int loopResId = 0;
+
+  private int loopStartMs = 0;
+
+  // The media player of the segment which is played when the current one completes
+  @Nullable private VideoPlayerPool.PooledPlayer nextSegmentPlayer;
+
+  private boolean segmentCompleted;
+
+  private final OnPreparedListener nextSegmentPreparedListener =
+      new OnPreparedListener() {
+        @Override
+        public void onPrepared(MediaPlayer mp) {
+          if (loopStartMs > 0) {
+            mp.seekTo(loopStartMs);
+          }
+          if (segmentCompleted) {
+            startNextSegment();
+          }
+        }
+      };
+
+  private final VideoPlaybackStats playbackStats = new VideoPlaybackStats();
+
+  @Nullable private PlaybackStatsListener playbackStatsListener;
+
+  private float visibilityThreshold = 0f;
+
+  private boolean offScreen;
+
+  private final Rect visibleRect = new Rect();
+
+  private final ViewTreeObserver.OnPreDrawListener preDrawListener =
+      new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+          updateOffScreen();
+          return true;
+        }
+      };
+
+  private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener =
+      new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+          updateOffScreen();
+        }
+      };
+
   public IllustrationVideoView(Context context, AttributeSet attrs) {
     super(context, attrs);
     final TypedArray a =
         context.obtainStyledAttributes(attrs, R.styleable.SuwIllustrationVideoView);
-    final int videoResId = a.getResourceId(R.styleable.SuwIllustrationVideoView_suwVideo, 0);
+    int videoResId = a.getResourceId(R.styleable.SuwIllustrationVideoView_suwVideo, 0);
+    posterEnabled = a.getBoolean(R.styleable.SuwIllustrationVideoView_suwVideoPoster, false);
+    loopResId = a.getResourceId(R.styleable.SuwIllustrationVideoView_suwLoopVideo, 0);
+    loopStartMs = a.getInt(R.styleable.SuwIllustrationVideoView_suwLoopStartMs, 0);
+    final int variantsResId =
+        a.getResourceId(R.styleable.SuwIllustrationVideoView_suwVideoVariants, 0);
+    final int variantWidthsResId =
+        a.getResourceId(R.styleable.SuwIllustrationVideoView_suwVideoVariantWidths, 0);
     a.recycle();
-    setVideoResource(videoResId);
+    if (variantsResId != 0) {
+      final Resources res = context.getResources();
+      final TypedArray variants = res.obtainTypedArray(variantsResId);
+      final int[] variantResIds = new int[variants.length()];
+      for (int i = 0; i < variantResIds.length; i++) {
+        variantResIds[i] = variants.getResourceId(i, 0);
+      }
+      variants.recycle();
+      final int[] variantWidths =
+          variantWidthsResId != 0 ? res.getIntArray(variantWidthsResId) : new int[0];
+      setVideoVariantsInternal(variantResIds, variantWidths, context.getPackageName());
+      if (videoResId == 0 && videoVariants != null) {
+        // Until the view is measured, default to the largest variant
+        videoResId = videoVariants[videoVariants.length - 1];
+      }
+    }
+    updateVideoResource(videoResId, context.getPackageName());
 
     // By default the video scales without interpolation, resulting in jagged edges in the
     // video. This works around it by making the view go through scaling, which will apply
@@ -93,6 +202,29 @@ public class IllustrationVideoView extends TextureView
     setSurfaceTextureListener(this);
   }
 
+  /**
+   * Sets the number of media players kept prepared after the views playing them are released, so
+   * that showing the same video again, for example when navigating back to a previous screen,
+   * starts playback without preparing the video again. Each pooled player holds on to its decoder
+   * resources, so this should be kept small. The default size is 0, which disables the pool.
+   */
+  public static void setPlayerPoolSize(int size) {
+    VideoPlayerPool.setMaxSize(size);
+  }
+
+  /**
+   * Prepares a video ahead of time, typically the video of the next screen, so that an
+   * IllustrationVideoView showing it starts playback as soon as its surface is available. This has
+   * no effect unless the player pool is enabled with {@link #setPlayerPoolSize(int)}. Must be
+   * called on the main thread.
+   *
+   * @param resId Resource ID of the video, typically an MP4 under res/raw.
+   * @param packageName The package name of resId.
+   */
+  public static void prepareVideo(Context context, @RawRes int resId, String packageName) {
+    VideoPlayerPool.prepare(context.getApplicationContext(), resId, packageName);
+  }
+
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
     int width = MeasureSpec.getSize(widthMeasureSpec);
@@ -109,6 +241,68 @@ public class IllustrationVideoView extends TextureView
     super.onMeasure(
         MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
         MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+    selectVideoVariant(getMeasuredWidth());
+  }
+
+  /**
+   * Sets resolution variants of the video, from which the smallest one which is at least as wide as
+   * this view is played. If none of them is wide enough, the largest variant is played.
+   *
+   * @param resIds Resource IDs of the variants, ordered from the smallest to the largest.
+   * @param widths The width in pixels of each variant.
+   * @param packageName The package name of resIds, or null for the package of this view's context.
+   */
+  public void setVideoVariants(@RawRes int[] resIds, int[] widths, @Nullable String packageName) {
+    setVideoVariantsInternal(
+        resIds, widths, packageName != null ? packageName : getContext().getPackageName());
+    requestLayout();
+  }
+
+  private void setVideoVariantsInternal(int[] resIds, int[] widths, String packageName) {
+    if (resIds.length == 0 || resIds.length != widths.length) {
+      Log.w(TAG, "Ignoring video variants, the number of videos and widths don't match");
+      videoVariants = null;
+      videoVariantWidths = null;
+      return;
+    }
+    videoVariants = resIds.clone();
+    videoVariantWidths = widths.clone();
+    videoVariantsPackageName = packageName;
+  }
+
+  private void selectVideoVariant(int width) {
+    if (videoVariants == null || width <= 0) {
+      return;
+    }
+    int selected = videoVariants.length - 1;
+    for (int i = 0; i < videoVariants.length; i++) {
+      if (videoVariantWidths[i] >= width) {
+        selected = i;
+        break;
+      }
+    }
+    final int resId = videoVariants[selected];
+    final String packageName = videoVariantsPackageName;
+    if (resId == videoResId && packageName.equals(videoResPackageName)) {
+      return;
+    }
+    if (mMediaPlayer == null) {
+      // No player has been created yet, so the variant can be switched right away
+      videoResId = resId;
+      videoResPackageName = packageName;
+      loadPosterMetadata();
+    } else {
+      // Don't recreate the media player in the middle of a measure pass
+      post(
+          new Runnable() {
+            @Override
+            public void run() {
+              if (videoVariants != null) {
+                updateVideoResource(resId, packageName);
+              }
+            }
+          });
+    }
   }
 
   /**
@@ -118,12 +312,66 @@ public class IllustrationVideoView extends TextureView
    * @param videoResPackageName The package name of videoResId.
    */
   public void setVideoResource(@RawRes int videoResId, String videoResPackageName) {
+    videoVariants = null;
+    videoVariantWidths = null;
+    final boolean hadLoopSegment = loopResId != 0;
+    loopResId = 0;
+    if (!updateVideoResource(videoResId, videoResPackageName) && hadLoopSegment) {
+      createMediaPlayer();
+    }
+  }
+
+  /**
+   * Sets an intro video which is played once, followed by a video which is played in a continuous
+   * loop. The loop video is prepared while the intro plays, and takes over the surface as soon as
+   * the intro completes.
+   *
+   * @param introResId Resource ID of the intro video, typically an MP4 under res/raw.
+   * @param loopResId Resource ID of the loop video.
+   * @param packageName The package name of both videos.
+   */
+  public void setVideoSegments(@RawRes int introResId, @RawRes int loopResId, String packageName) {
+    videoVariants = null;
+    videoVariantWidths = null;
+    this.loopResId = loopResId;
+    videoResId = introResId;
+    videoResPackageName = packageName;
+    loadPosterMetadata();
+    createMediaPlayer();
+  }
+
+  /**
+   * Sets the position the video loops back to after it completes. If a separate loop video is set
+   * with {@link #setVideoSegments}, this is the position in the loop video.
+   *
+   * <p>To loop without a gap, the loop is prepared at this position in a second media player for
+   * the same video while the first one plays, so this uses two video decoders even if the player
+   * pool is disabled. If the second player can't be created, the video seeks back in the first one
+   * instead.
+   */
+  public void setLoopStartMs(int loopStartMs) {
+    this.loopStartMs = loopStartMs;
+  }
+
+  public int getLoopStartMs() {
+    return loopStartMs;
+  }
+
+  private boolean hasLoopSegment() {
+    return shouldLoop() && (loopResId != 0 || loopStartMs > 0);
+  }
+
+  /** @return True if the video changed and the media player was recreated. */
+  private boolean updateVideoResource(@RawRes int videoResId, String videoResPackageName) {
     if (videoResId != this.videoResId
         || (videoResPackageName != null && !videoResPackageName.equals(this.videoResPackageName))) {
       this.videoResId = videoResId;
       this.videoResPackageName = videoResPackageName;
+      loadPosterMetadata();
       createMediaPlayer();
+      return true;
     }
+    return false;
   }
 
   /**
@@ -135,6 +383,182 @@ public class IllustrationVideoView extends TextureView
     setVideoResource(resId, getContext().getPackageName());
   }
 
+  /**
+   * Sets whether the first frame of the video is shown while the video is being prepared. The frame
+   * is extracted from the video the first time it is shown at a given size, and cached in memory
+   * and on disk. The cached size of the video is also used to measure this view before the video
+   * is prepared.
+   */
+  public void setPosterEnabled(boolean posterEnabled) {
+    if (this.posterEnabled != posterEnabled) {
+      this.posterEnabled = posterEnabled;
+      loadPosterMetadata();
+    }
+  }
+
+  /** @return True if the first frame of the video is shown while the video is being prepared. */
+  public boolean isPosterEnabled() {
+    return posterEnabled;
+  }
+
+  private void loadPosterMetadata() {
+    if (!posterEnabled || videoResId == 0) {
+      return;
+    }
+    final VideoPosterCache.Metadata metadata =
+        VideoPosterCache.getMetadata(videoResId, videoResPackageName);
+    if (metadata != null) {
+      setAspectRatio(metadata.getAspectRatio());
+      return;
+    }
+    final int resId = videoResId;
+    final String packageName = videoResPackageName;
+    VideoPosterCache.load(
+        getContext(),
+        resId,
+        packageName,
+        0,
+        0,
+        new VideoPosterCache.Callback() {
+          @Override
+          public void onMetadataLoaded(VideoPosterCache.Metadata metadata) {
+            if (resId == videoResId && packageName.equals(videoResPackageName) && !prepared) {
+              setAspectRatio(metadata.getAspectRatio());
+            }
+          }
+        });
+  }
+
+  /**
+   * Draws the cached poster of the video onto the surface texture, which is displayed until the
+   * media player renders the first frame of the video in its place. This must be done before the
+   * media player is connected to the surface texture.
+   *
+   * @return True if the poster was drawn.
+   */
+  private boolean drawPoster(SurfaceTexture surfaceTexture) {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (!posterEnabled || videoResId == 0 || width <= 0 || height <= 0) {
+      return false;
+    }
+    final Bitmap poster =
+        VideoPosterCache.getPoster(videoResId, videoResPackageName, width, height);
+    if (poster == null) {
+      // Extract the poster at this size for the next time this video is shown
+      VideoPosterCache.load(getContext(), videoResId, videoResPackageName, width, height, null);
+      return false;
+    }
+    final Surface posterSurface = new Surface(surfaceTexture);
+    try {
+      final Canvas canvas = posterSurface.lockCanvas(null);
+      try {
+        canvas.drawBitmap(poster, 0, 0, null);
+      } finally {
+        posterSurface.unlockCanvasAndPost(canvas);
+      }
+      return true;
+    } catch (IllegalArgumentException | Surface.OutOfResourcesException e) {
+      Log.w(TAG, "Unable to draw poster", e);
+      return false;
+    } finally {
+      // Disconnects the canvas from the surface texture, so that the media player can connect
+      posterSurface.release();
+    }
+  }
+
+  private void setAspectRatio(float aspectRatio) {
+    if (Float.compare(mAspectRatio, aspectRatio) != 0) {
+      mAspectRatio = aspectRatio;
+      requestLayout();
+    }
+  }
+
+  /**
+   * Sets the fraction of this view which needs to be on screen for the video to play. The video is
+   * paused when less of the view is visible, for example when it is scrolled out of a scroll view,
+   * and resumed when it is scrolled back. The default value is 0, which pauses the video only when
+   * the view is entirely off screen.
+   *
+   * @param threshold The visible fraction of the view, from 0 to 1.
+   */
+  public void setVisibilityThreshold(float threshold) {
+    visibilityThreshold = threshold;
+    updateOffScreen();
+  }
+
+  /** @return The fraction of this view which needs to be on screen for the video to play. */
+  public float getVisibilityThreshold() {
+    return visibilityThreshold;
+  }
+
+  /** Sets a listener which is notified of the playback statistics of the video. */
+  public void setPlaybackStatsListener(@Nullable PlaybackStatsListener listener) {
+    playbackStatsListener = listener;
+  }
+
+  /**
+   * @return A snapshot of the playback statistics since the surface of this view last became
+   *     available.
+   */
+  public VideoPlaybackStats getPlaybackStats() {
+    return playbackStats.copy();
+  }
+
+  private void notifyPlaybackStats() {
+    if (playbackStatsListener != null) {
+      playbackStatsListener.onPlaybackStats(playbackStats.copy());
+    }
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    final ViewTreeObserver observer = getViewTreeObserver();
+    observer.addOnPreDrawListener(preDrawListener);
+    observer.addOnScrollChangedListener(scrollChangedListener);
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    final ViewTreeObserver observer = getViewTreeObserver();
+    observer.removeOnPreDrawListener(preDrawListener);
+    observer.removeOnScrollChangedListener(scrollChangedListener);
+    offScreen = false;
+    super.onDetachedFromWindow();
+  }
+
+  /**
+   * Pauses the video when this view is clipped off screen, and resumes it when it is back if the
+   * window has focus.
+   */
+  private void updateOffScreen() {
+    final int width = getWidth();
+    final int height = getHeight();
+    if (width <= 0 || height <= 0) {
+      // Not laid out yet
+      return;
+    }
+    final boolean visible = getGlobalVisibleRect(visibleRect);
+    final float visibleFraction =
+        visible ? (float) (visibleRect.width() * visibleRect.height()) / (width * height) : 0f;
+    final boolean offScreen =
+        visibilityThreshold > 0 ? visibleFraction < visibilityThreshold : visibleFraction <= 0;
+    if (offScreen != this.offScreen) {
+      if (offScreen) {
+        stop();
+        this.offScreen = true;
+      } else {
+        this.offScreen = false;
+        // Same condition as onWindowFocusChanged, so that a video paused by a dialog or another
+        // window on top is not resumed by scrolling
+        if (hasWindowFocus()) {
+          start();
+        }
+      }
+    }
+  }
+
   @Override
   public void onWindowFocusChanged(boolean hasWindowFocus) {
     super.onWindowFocusChanged(hasWindowFocus);
@@ -147,34 +571,104 @@ public class IllustrationVideoView extends TextureView
 
   /**
    * Creates a media player for the current URI. The media player will be started immediately if the
-   * view's window is visible. If there is an existing media player, it will be released.
+   * view's window is visible. If there is an existing media player, it will be released or returned
+   * to the player pool.
    */
   protected void createMediaPlayer() {
-    if (mMediaPlayer != null) {
-      mMediaPlayer.release();
-    }
+    releaseMediaPlayer();
     if (surface == null || videoResId == 0) {
       return;
     }
 
-    mMediaPlayer = new MediaPlayer();
+    pooledPlayer = VideoPlayerPool.obtain(getContext(), videoResId, videoResPackageName);
+    if (pooledPlayer == null) {
+      return;
+    }
+    mMediaPlayer = pooledPlayer.mediaPlayer;
 
     mMediaPlayer.setSurface(surface);
-    mMediaPlayer.setOnPreparedListener(this);
     mMediaPlayer.setOnSeekCompleteListener(this);
     mMediaPlayer.setOnInfoListener(this);
-    mMediaPlayer.setOnErrorListener(this);
+    mMediaPlayer.setOnCompletionListener(this);
+    pooledPlayer.setListeners(this, this);
 
-    setVideoResourceInternal(videoResId, videoResPackageName);
+    if (pooledPlayer.isPrepared()) {
+      // Prepared ahead of time by the pool
+      onPrepared(mMediaPlayer);
+    }
   }
 
-  private void setVideoResourceInternal(@RawRes int videoRes, String videoResPackageName) {
-    Uri uri = Uri.parse("android.resource://" + videoResPackageName + "/" + videoRes);
-    try {
-      mMediaPlayer.setDataSource(getContext(), uri, null);
-      mMediaPlayer.prepareAsync();
-    } catch (IOException e) {
-      Log.wtf(TAG, "Unable to set data source", e);
+  /**
+   * Returns the media player to the player pool, which releases it unless it is enabled by {@link
+   * #setPlayerPoolSize(int)}.
+   */
+  private void releaseMediaPlayer() {
+    if (pooledPlayer != null) {
+      VideoPlayerPool.recycle(pooledPlayer);
+      pooledPlayer = null;
+    }
+    if (nextSegmentPlayer != null) {
+      VideoPlayerPool.recycle(nextSegmentPlayer);
+      nextSegmentPlayer = null;
+    }
+    mMediaPlayer = null;
+    prepared = false;
+    segmentCompleted = false;
+  }
+
+  /** Starts preparing the loop segment in a second media player, without a surface. */
+  private void prepareNextSegment() {
+    if (!hasLoopSegment() || nextSegmentPlayer != null || surface == null) {
+      return;
+    }
+    final int resId = loopResId != 0 ? loopResId : videoResId;
+    nextSegmentPlayer = VideoPlayerPool.obtain(getContext(), resId, videoResPackageName);
+    if (nextSegmentPlayer == null) {
+      return;
+    }
+    nextSegmentPlayer.setListeners(nextSegmentPreparedListener, this);
+    if (nextSegmentPlayer.isPrepared()) {
+      nextSegmentPreparedListener.onPrepared(nextSegmentPlayer.mediaPlayer);
+    }
+  }
+
+  /**
+   * Moves the surface from the completed media player to the prepared player of the next segment
+   * and starts it. The surface texture keeps showing the last frame of the completed segment until
+   * the next one renders, so there is no gap in between.
+   */
+  private void startNextSegment() {
+    final VideoPlayerPool.PooledPlayer previous = pooledPlayer;
+    segmentCompleted = false;
+    // Only one media player can be connected to the surface at a time
+    previous.mediaPlayer.setSurface(null);
+    previous.mediaPlayer.setOnCompletionListener(null);
+
+    pooledPlayer = nextSegmentPlayer;
+    nextSegmentPlayer = null;
+    mMediaPlayer = pooledPlayer.mediaPlayer;
+    mMediaPlayer.setSurface(surface);
+    mMediaPlayer.setOnSeekCompleteListener(this);
+    mMediaPlayer.setOnInfoListener(this);
+    mMediaPlayer.setOnCompletionListener(this);
+    pooledPlayer.setListeners(this, this);
+    final boolean loopRange = loopStartMs > 0;
+    // A loop from the start of the video can be left to the media player
+    mMediaPlayer.setLooping(!loopRange);
+    if (getWindowVisibility() == View.VISIBLE) {
+      start();
+    }
+
+    if (loopRange && previous.key.equals(pooledPlayer.key)) {
+      // Looping a range of one video. The completed player becomes the next segment.
+      previous.mediaPlayer.setOnSeekCompleteListener(null);
+      previous.mediaPlayer.setOnInfoListener(null);
+      nextSegmentPlayer = previous;
+      nextSegmentPlayer.setListeners(nextSegmentPreparedListener, this);
+      nextSegmentPreparedListener.onPrepared(previous.mediaPlayer);
+    } else {
+      VideoPlayerPool.recycle(previous);
+      prepareNextSegment();
     }
   }
 
@@ -186,7 +680,8 @@ public class IllustrationVideoView extends TextureView
     // Reattach only if it has been previously released
     SurfaceTexture surfaceTexture = getSurfaceTexture();
     if (surfaceTexture != null) {
-      setVisibility(View.INVISIBLE);
+      // Keep the view hidden until video starts, unless the poster can be shown in the meantime
+      setVisibility(drawPoster(surfaceTexture) ? View.VISIBLE : View.INVISIBLE);
       surface = new Surface(surfaceTexture);
     }
   }
@@ -213,11 +708,11 @@ public class IllustrationVideoView extends TextureView
    * onSurfaceTextureDestroyed so in most cases you don't have to call this.
    */
   public void release() {
-    if (mMediaPlayer != null) {
-      mMediaPlayer.release();
-      mMediaPlayer = null;
-      prepared = false;
+    if (playbackStats.isStarted()) {
+      notifyPlaybackStats();
+      playbackStats.onStopped();
     }
+    releaseMediaPlayer();
     if (surface != null) {
       surface.release();
       surface = null;
@@ -236,6 +731,7 @@ public class IllustrationVideoView extends TextureView
     }
     createSurface();
     if (surface != null) {
+      playbackStats.onSurfaceAvailable(SystemClock.elapsedRealtime());
       createMediaPlayer();
     } else {
       Log.w(TAG, "Surface creation failed");
@@ -263,13 +759,15 @@ public class IllustrationVideoView extends TextureView
   }
 
   @Override
-  public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {}
+  public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+    playbackStats.onFrameRendered(surfaceTexture.getTimestamp());
+  }
 
   /* Animatable methods */
 
   @Override
   public void start() {
-    if (prepared && mMediaPlayer != null && !mMediaPlayer.isPlaying()) {
+    if (prepared && !offScreen && mMediaPlayer != null && !mMediaPlayer.isPlaying()) {
       mMediaPlayer.start();
     }
   }
@@ -278,6 +776,7 @@ public class IllustrationVideoView extends TextureView
   public void stop() {
     if (prepared && mMediaPlayer != null) {
       mMediaPlayer.pause();
+      playbackStats.onPaused();
     }
   }
 
@@ -294,6 +793,12 @@ public class IllustrationVideoView extends TextureView
       // Video available, show view now
       setVisibility(View.VISIBLE);
       onRenderingStart();
+      if (playbackStats.getTimeToFirstFrameMs() < 0) {
+        playbackStats.onFirstFrame(SystemClock.elapsedRealtime());
+        notifyPlaybackStats();
+      }
+    } else if (what == MediaPlayer.MEDIA_INFO_BUFFERING_START) {
+      playbackStats.onRebuffer();
     }
     return false;
   }
@@ -301,7 +806,8 @@ public class IllustrationVideoView extends TextureView
   @Override
   public void onPrepared(MediaPlayer mp) {
     prepared = true;
-    mp.setLooping(shouldLoop());
+    playbackStats.onPrepared(SystemClock.elapsedRealtime());
+    mp.setLooping(shouldLoop() && !hasLoopSegment());
 
     float aspectRatio = 0.0f;
     if (mp.getVideoWidth() > 0 && mp.getVideoHeight() > 0) {
@@ -309,19 +815,37 @@ public class IllustrationVideoView extends TextureView
     } else {
       Log.w(TAG, "Unexpected video size=" + mp.getVideoWidth() + "x" + mp.getVideoHeight());
     }
-    if (Float.compare(mAspectRatio, aspectRatio) != 0) {
-      mAspectRatio = aspectRatio;
-      requestLayout();
-    }
+    setAspectRatio(aspectRatio);
     if (getWindowVisibility() == View.VISIBLE) {
       start();
     }
+    prepareNextSegment();
+  }
+
+  @Override
+  public void onCompletion(MediaPlayer mp) {
+    if (mp != mMediaPlayer || !hasLoopSegment()) {
+      return;
+    }
+    if (nextSegmentPlayer != null) {
+      segmentCompleted = true;
+      if (nextSegmentPlayer.isPrepared()) {
+        startNextSegment();
+      }
+    } else if (loopResId == 0) {
+      // The next segment couldn't be created, loop back in this player instead
+      mp.seekTo(loopStartMs);
+    }
   }
 
   @Override
   public void onSeekComplete(MediaPlayer mp) {
     if (isPrepared()) {
-      mp.start();
+      // A pooled player can complete the seek to the start issued when it was recycled after this
+      // view obtained it, so only resume through start() if the video can play
+      if (mp == mMediaPlayer && hasWindowFocus()) {
+        start();
+      }
     } else {
       Log.wtf(TAG, "Seek complete but media player not prepared");
     }
@@ -338,6 +862,15 @@ public class IllustrationVideoView extends TextureView
   @Override
   public boolean onError(MediaPlayer mediaPlayer, int what, int extra) {
     Log.w(TAG, "MediaPlayer error. what=" + what + " extra=" + extra);
+    playbackStats.onError();
+    if (nextSegmentPlayer != null && mediaPlayer == nextSegmentPlayer.mediaPlayer) {
+      VideoPlayerPool.recycle(nextSegmentPlayer);
+      nextSegmentPlayer = null;
+      if (segmentCompleted && loopResId == 0 && mMediaPlayer != null) {
+        segmentCompleted = false;
+        mMediaPlayer.seekTo(loopStartMs);
+      }
+    }
     return false;
   }
 }
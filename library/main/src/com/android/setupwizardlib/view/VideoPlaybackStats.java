@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+/**
+ * Playback statistics of an {@link IllustrationVideoView}, from the time its surface became
+ * available. Times are in milliseconds, and are -1 if the event has not happened yet.
+ *
+ * @see IllustrationVideoView#setPlaybackStatsListener
+ */
+public final class VideoPlaybackStats {
+
+  // An interval this much longer than the average frame interval is counted as dropped frames
+  private static final float DROPPED_FRAME_THRESHOLD = 1.5f;
+
+  private long surfaceAvailableTimeMs = -1;
+  private long preparedTimeMs = -1;
+  private long firstFrameTimeMs = -1;
+  private int rebufferCount;
+  private int errorCount;
+  private int renderedFrameCount;
+  private int droppedFrameCount;
+
+  private long lastFrameTimestampNs = -1;
+  private float averageFrameIntervalNs;
+
+  VideoPlaybackStats() {}
+
+  private VideoPlaybackStats(VideoPlaybackStats other) {
+    surfaceAvailableTimeMs = other.surfaceAvailableTimeMs;
+    preparedTimeMs = other.preparedTimeMs;
+    firstFrameTimeMs = other.firstFrameTimeMs;
+    rebufferCount = other.rebufferCount;
+    errorCount = other.errorCount;
+    renderedFrameCount = other.renderedFrameCount;
+    droppedFrameCount = other.droppedFrameCount;
+  }
+
+  /** @return The time from the surface becoming available until the video was prepared. */
+  public long getTimeToPreparedMs() {
+    return getTimeSinceSurfaceAvailable(preparedTimeMs);
+  }
+
+  /** @return The time from the surface becoming available until the first frame was rendered. */
+  public long getTimeToFirstFrameMs() {
+    return getTimeSinceSurfaceAvailable(firstFrameTimeMs);
+  }
+
+  /** @return The number of times playback stalled to buffer. */
+  public int getRebufferCount() {
+    return rebufferCount;
+  }
+
+  /** @return The number of errors reported by the media player. */
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * @return The number of video frames rendered to the surface. Frames rendered before the video
+   *     started, such as the poster frame, are not counted.
+   */
+  public int getRenderedFrameCount() {
+    return renderedFrameCount;
+  }
+
+  /**
+   * @return An estimate of the number of dropped frames, from gaps in the timestamps of the
+   *     rendered frames.
+   */
+  public int getDroppedFrameEstimate() {
+    return droppedFrameCount;
+  }
+
+  @Override
+  public String toString() {
+    return "VideoPlaybackStats{timeToPreparedMs="
+        + getTimeToPreparedMs()
+        + ", timeToFirstFrameMs="
+        + getTimeToFirstFrameMs()
+        + ", rebufferCount="
+        + rebufferCount
+        + ", errorCount="
+        + errorCount
+        + ", renderedFrameCount="
+        + renderedFrameCount
+        + ", droppedFrameEstimate="
+        + droppedFrameCount
+        + "}";
+  }
+
+  VideoPlaybackStats copy() {
+    return new VideoPlaybackStats(this);
+  }
+
+  boolean isStarted() {
+    return surfaceAvailableTimeMs >= 0;
+  }
+
+  /** Starts a new playback session, resetting all the statistics. */
+  void onSurfaceAvailable(long timeMs) {
+    surfaceAvailableTimeMs = timeMs;
+    preparedTimeMs = -1;
+    firstFrameTimeMs = -1;
+    rebufferCount = 0;
+    errorCount = 0;
+    renderedFrameCount = 0;
+    droppedFrameCount = 0;
+    averageFrameIntervalNs = 0;
+    onPaused();
+  }
+
+  void onPrepared(long timeMs) {
+    if (preparedTimeMs < 0) {
+      preparedTimeMs = timeMs;
+    }
+  }
+
+  void onFirstFrame(long timeMs) {
+    if (firstFrameTimeMs < 0) {
+      firstFrameTimeMs = timeMs;
+    }
+  }
+
+  void onRebuffer() {
+    rebufferCount++;
+  }
+
+  void onError() {
+    errorCount++;
+  }
+
+  void onFrameRendered(long timestampNs) {
+    if (firstFrameTimeMs < 0) {
+      // The video has not started rendering, so this is the poster frame
+      return;
+    }
+    renderedFrameCount++;
+    if (lastFrameTimestampNs >= 0 && timestampNs > lastFrameTimestampNs) {
+      final long interval = timestampNs - lastFrameTimestampNs;
+      if (averageFrameIntervalNs <= 0) {
+        averageFrameIntervalNs = interval;
+      } else if (interval > averageFrameIntervalNs * DROPPED_FRAME_THRESHOLD) {
+        droppedFrameCount += Math.round(interval / averageFrameIntervalNs) - 1;
+      } else {
+        // Moving average of the intervals without dropped frames
+        averageFrameIntervalNs = averageFrameIntervalNs * 0.9f + interval * 0.1f;
+      }
+    }
+    lastFrameTimestampNs = timestampNs;
+  }
+
+  /** Playback was paused, so the next frame interval doesn't count towards dropped frames. */
+  void onPaused() {
+    lastFrameTimestampNs = -1;
+  }
+
+  void onStopped() {
+    surfaceAvailableTimeMs = -1;
+  }
+
+  private long getTimeSinceSurfaceAvailable(long timeMs) {
+    return timeMs >= 0 && surfaceAvailableTimeMs >= 0 ? timeMs - surfaceAvailableTimeMs : -1;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.media.MediaPlayer.OnErrorListener;
+import android.media.MediaPlayer.OnPreparedListener;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import android.util.Log;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A pool of media players for {@link IllustrationVideoView}, keyed by the package and resource ID
+ * of their video. Players released by a view are kept prepared in the pool, and players can be
+ * prepared before the view showing their video is created, so that the view can start playback as
+ * soon as its surface is available instead of waiting for {@link MediaPlayer#prepareAsync()}.
+ *
+ * <p>The pool is disabled (has a size of 0) by default. All methods must be called on the main
+ * thread.
+ */
+@TargetApi(VERSION_CODES.ICE_CREAM_SANDWICH)
+final class VideoPlayerPool {
+
+  private static final String TAG = "VideoPlayerPool";
+
+  /** A media player obtained from the pool, which tracks whether it has been prepared. */
+  static final class PooledPlayer implements OnPreparedListener, OnErrorListener {
+
+    final String key;
+    final MediaPlayer mediaPlayer;
+
+    private boolean prepared;
+    private boolean failed;
+    @Nullable private OnPreparedListener preparedListener;
+    @Nullable private OnErrorListener errorListener;
+
+    PooledPlayer(String key, MediaPlayer mediaPlayer) {
+      this.key = key;
+      this.mediaPlayer = mediaPlayer;
+      mediaPlayer.setOnPreparedListener(this);
+      mediaPlayer.setOnErrorListener(this);
+    }
+
+    boolean isPrepared() {
+      return prepared;
+    }
+
+    /** Sets the listeners which are notified of the media player callbacks tracked by the pool. */
+    void setListeners(
+        @Nullable OnPreparedListener preparedListener, @Nullable OnErrorListener errorListener) {
+      this.preparedListener = preparedListener;
+      this.errorListener = errorListener;
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+      prepared = true;
+      if (preparedListener != null) {
+        preparedListener.onPrepared(mp);
+      }
+    }
+
+    @Override
+    public boolean onError(MediaPlayer mp, int what, int extra) {
+      failed = true;
+      return errorListener != null && errorListener.onError(mp, what, extra);
+    }
+  }
+
+  // Access ordered, so that the least recently used player is evicted first
+  private static final LinkedHashMap<String, PooledPlayer> players =
+      new LinkedHashMap<>(4, 0.75f, true);
+
+  private static int maxSize = 0;
+
+  /** Sets the maximum number of players kept in the pool, releasing any players over the limit. */
+  static void setMaxSize(int size) {
+    maxSize = Math.max(size, 0);
+    trimToSize(maxSize);
+  }
+
+  /**
+   * Starts preparing the given video in a pooled player, if the pool is enabled and doesn't already
+   * contain a player for it.
+   */
+  static void prepare(Context context, @RawRes int resId, String packageName) {
+    final String key = getKey(resId, packageName);
+    if (maxSize == 0 || players.containsKey(key)) {
+      return;
+    }
+    final PooledPlayer player = createPlayer(context, key, resId, packageName);
+    if (player != null) {
+      players.put(key, player);
+      trimToSize(maxSize);
+    }
+  }
+
+  /**
+   * Takes the pooled player for the given video out of the pool, or creates a new player if there
+   * is none, or if the pooled player has failed while it was in the pool. The returned player may
+   * still be preparing.
+   *
+   * @return The player, or null if the data source of the video could not be set.
+   */
+  @Nullable
+  static PooledPlayer obtain(Context context, @RawRes int resId, String packageName) {
+    final String key = getKey(resId, packageName);
+    final PooledPlayer player = players.remove(key);
+    if (player != null) {
+      if (!player.failed) {
+        return player;
+      }
+      player.mediaPlayer.release();
+    }
+    return createPlayer(context, key, resId, packageName);
+  }
+
+  /**
+   * Returns a player obtained from {@link #obtain} to the pool. The player is detached from its
+   * surface and listeners, and released instead if the pool is disabled or the player has failed.
+   */
+  static void recycle(PooledPlayer player) {
+    final MediaPlayer mediaPlayer = player.mediaPlayer;
+    player.setListeners(null, null);
+    if (maxSize == 0 || player.failed) {
+      mediaPlayer.release();
+      return;
+    }
+    mediaPlayer.setOnSeekCompleteListener(null);
+    mediaPlayer.setOnInfoListener(null);
+    mediaPlayer.setOnCompletionListener(null);
+    mediaPlayer.setSurface(null);
+    if (player.prepared) {
+      if (mediaPlayer.isPlaying()) {
+        mediaPlayer.pause();
+      }
+      mediaPlayer.seekTo(0);
+    }
+    final PooledPlayer previous = players.put(player.key, player);
+    if (previous != null && previous != player) {
+      previous.mediaPlayer.release();
+    }
+    trimToSize(maxSize);
+  }
+
+  @Nullable
+  private static PooledPlayer createPlayer(
+      Context context, String key, @RawRes int resId, String packageName) {
+    final MediaPlayer mediaPlayer = new MediaPlayer();
+    final PooledPlayer player = new PooledPlayer(key, mediaPlayer);
+    try {
+      VideoResources.setDataSource(mediaPlayer, context, resId, packageName);
+      mediaPlayer.prepareAsync();
+      return player;
+    } catch (IOException e) {
+      Log.wtf(TAG, "Unable to set data source", e);
+      mediaPlayer.release();
+      return null;
+    }
+  }
+
+  private static void trimToSize(int size) {
+    final Iterator<PooledPlayer> iterator = players.values().iterator();
+    while (players.size() > size && iterator.hasNext()) {
+      iterator.next().mediaPlayer.release();
+      iterator.remove();
+    }
+  }
+
+  private static String getKey(@RawRes int resId, String packageName) {
+    return packageName + "/" + resId;
+  }
+
+  private VideoPlayerPool() {}
+}
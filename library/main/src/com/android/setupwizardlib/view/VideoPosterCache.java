@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.os.Build.VERSION_CODES;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import androidx.annotation.VisibleForTesting;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * A cache of the first frame and the size of illustration videos, used by {@link
+ * IllustrationVideoView} to show a poster of the video while its media player is preparing, and to
+ * measure itself at the aspect ratio of the video before it is prepared.
+ *
+ * <p>Posters are cached per package, resource ID and size, in memory and in the cache directory of
+ * the app. On disk, posters are stored as the raw pixels of an RGB_565 bitmap, which are
+ * memory-mapped straight into the bitmap when read back. The files of a package are invalidated
+ * when the package is updated.
+ *
+ * <p>Cache misses are loaded on a background thread. The {@code get} methods must be called on the
+ * main thread.
+ */
+@TargetApi(VERSION_CODES.ICE_CREAM_SANDWICH)
+final class VideoPosterCache {
+
+  private static final String TAG = "VideoPosterCache";
+
+  private static final String DIRECTORY_NAME = "suw_video_poster";
+  private static final String METADATA_SUFFIX = ".meta";
+  private static final String POSTER_SUFFIX = ".565";
+
+  private static final int POSTER_CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+
+  /** The size of a video, and the size its poster was last requested at. */
+  static final class Metadata {
+    final int videoWidth;
+    final int videoHeight;
+    final int posterWidth;
+    final int posterHeight;
+
+    Metadata(int videoWidth, int videoHeight, int posterWidth, int posterHeight) {
+      this.videoWidth = videoWidth;
+      this.videoHeight = videoHeight;
+      this.posterWidth = posterWidth;
+      this.posterHeight = posterHeight;
+    }
+
+    /** @return The aspect ratio (height / width) of the video, or 0 if the size is unknown. */
+    float getAspectRatio() {
+      return videoWidth > 0 && videoHeight > 0 ? (float) videoHeight / videoWidth : 0f;
+    }
+  }
+
+  /** Callback for {@link #load}, called on the main thread. */
+  interface Callback {
+    void onMetadataLoaded(Metadata metadata);
+  }
+
+  private static final LruCache<String, Metadata> metadataCache = new LruCache<>(16);
+
+  private static final LruCache<String, Bitmap> posterCache =
+      new LruCache<String, Bitmap>(POSTER_CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+          return bitmap.getByteCount();
+        }
+      };
+
+  // Only accessed on the load executor
+  private static final HashMap<String, String> packageVersions = new HashMap<>();
+
+  private static Executor loadExecutor;
+  private static Handler mainHandler;
+
+  /** @return The metadata of the video if it is in memory, or null otherwise. */
+  @Nullable
+  static Metadata getMetadata(@RawRes int resId, String packageName) {
+    return metadataCache.get(getKey(resId, packageName));
+  }
+
+  /** @return The poster of the video at the given size if it is in memory, or null otherwise. */
+  @Nullable
+  static Bitmap getPoster(@RawRes int resId, String packageName, int width, int height) {
+    return posterCache.get(getPosterKey(getKey(resId, packageName), width, height));
+  }
+
+  /**
+   * Loads the metadata and the poster of the video into memory on a background thread, from disk or
+   * by extracting them from the video.
+   *
+   * @param width The width of the poster, or 0 to load the poster at the size it was last loaded.
+   * @param height The height of the poster, or 0 to load the poster at the size it was last loaded.
+   * @param callback Callback which is notified when the metadata has been loaded, if it is loaded
+   *     successfully.
+   */
+  static void load(
+      Context context,
+      @RawRes final int resId,
+      final String packageName,
+      final int width,
+      final int height,
+      @Nullable final Callback callback) {
+    final Context applicationContext = context.getApplicationContext();
+    getLoadExecutor()
+        .execute(
+            new Runnable() {
+              @Override
+              public void run() {
+                final Metadata metadata =
+                    loadInBackground(applicationContext, resId, packageName, width, height);
+                if (metadata != null && callback != null) {
+                  getMainHandler()
+                      .post(
+                          new Runnable() {
+                            @Override
+                            public void run() {
+                              callback.onMetadataLoaded(metadata);
+                            }
+                          });
+                }
+              }
+            });
+  }
+
+  @VisibleForTesting
+  static void putMetadata(@RawRes int resId, String packageName, Metadata metadata) {
+    metadataCache.put(getKey(resId, packageName), metadata);
+  }
+
+  @Nullable
+  private static Metadata loadInBackground(
+      Context context, @RawRes int resId, String packageName, int width, int height) {
+    final String key = getKey(resId, packageName);
+    final File directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+    final String fileName = key + "_" + getPackageVersion(context, packageName);
+    final File metadataFile = new File(directory, fileName + METADATA_SUFFIX);
+
+    Metadata metadata = metadataCache.get(key);
+    if (metadata == null) {
+      metadata = readMetadata(metadataFile);
+    }
+    if (width <= 0 || height <= 0) {
+      width = metadata != null ? metadata.posterWidth : 0;
+      height = metadata != null ? metadata.posterHeight : 0;
+    }
+    final boolean loadPoster = width > 0 && height > 0;
+
+    final String posterKey = getPosterKey(key, width, height);
+    final File posterFile =
+        new File(directory, fileName + "_" + width + "x" + height + POSTER_SUFFIX);
+    Bitmap poster = loadPoster ? posterCache.get(posterKey) : null;
+    if (poster == null && loadPoster) {
+      poster = readPoster(posterFile, width, height);
+    }
+
+    boolean metadataChanged = false;
+    if (metadata == null || (poster == null && loadPoster)) {
+      // Not cached on disk, extract from the video itself
+      final ExtractedMetadata extracted = extract(context, resId, packageName, width, height);
+      if (extracted != null) {
+        if (metadata == null) {
+          deleteOtherVersions(directory, key, fileName);
+        }
+        // Don't keep the extracted poster alive through the metadata cache
+        metadata = new Metadata(extracted.videoWidth, extracted.videoHeight, 0, 0);
+        metadataChanged = true;
+        poster = extracted.poster;
+        if (poster != null) {
+          writePoster(directory, posterFile, poster);
+        }
+      }
+    }
+    if (metadata == null) {
+      return null;
+    }
+
+    if (poster != null) {
+      posterCache.put(posterKey, poster);
+      if (metadata.posterWidth != width || metadata.posterHeight != height) {
+        // Remember the size, so that the poster can be preloaded before the view is measured
+        metadata = new Metadata(metadata.videoWidth, metadata.videoHeight, width, height);
+        metadataChanged = true;
+      }
+    }
+    if (metadataChanged) {
+      writeMetadata(directory, metadataFile, metadata);
+    }
+    metadataCache.put(key, metadata);
+    return metadata;
+  }
+
+  /** Metadata extracted from a video, with the poster at the requested size. */
+  private static final class ExtractedMetadata extends Metadata {
+    @Nullable final Bitmap poster;
+
+    ExtractedMetadata(int videoWidth, int videoHeight, @Nullable Bitmap poster) {
+      super(videoWidth, videoHeight, 0, 0);
+      this.poster = poster;
+    }
+  }
+
+  @Nullable
+  private static ExtractedMetadata extract(
+      Context context, @RawRes int resId, String packageName, int width, int height) {
+    final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+    try {
+      VideoResources.setDataSource(retriever, context, resId, packageName);
+      final int videoWidth =
+          parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+      final int videoHeight =
+          parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+      Bitmap poster = null;
+      if (width > 0 && height > 0) {
+        final Bitmap frame =
+            retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        if (frame != null) {
+          poster = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+          new Canvas(poster)
+              .drawBitmap(
+                  frame, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+          frame.recycle();
+        }
+      }
+      return new ExtractedMetadata(videoWidth, videoHeight, poster);
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Unable to extract poster of " + packageName + "/" + resId, e);
+      return null;
+    } finally {
+      retriever.release();
+    }
+  }
+
+  @Nullable
+  private static Metadata readMetadata(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      final DataInputStream input = new DataInputStream(new FileInputStream(file));
+      try {
+        return new Metadata(input.readInt(), input.readInt(), input.readInt(), input.readInt());
+      } finally {
+        input.close();
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to read cached metadata " + file, e);
+      file.delete();
+      return null;
+    }
+  }
+
+  private static void writeMetadata(File directory, File file, Metadata metadata) {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Unable to create cache directory " + directory);
+      return;
+    }
+    try {
+      final DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+      try {
+        output.writeInt(metadata.videoWidth);
+        output.writeInt(metadata.videoHeight);
+        output.writeInt(metadata.posterWidth);
+        output.writeInt(metadata.posterHeight);
+      } finally {
+        output.close();
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to write metadata to cache " + file, e);
+      file.delete();
+    }
+  }
+
+  @Nullable
+  private static Bitmap readPoster(File file, int width, int height) {
+    if (!file.isFile()) {
+      return null;
+    }
+    final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+    final int byteCount = bitmap.getByteCount();
+    if (file.length() != byteCount) {
+      Log.w(TAG, "Unexpected size of cached poster " + file + ": " + file.length());
+      bitmap.recycle();
+      file.delete();
+      return null;
+    }
+    try {
+      final RandomAccessFile input = new RandomAccessFile(file, "r");
+      try {
+        final MappedByteBuffer buffer =
+            input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, byteCount);
+        bitmap.copyPixelsFromBuffer(buffer);
+      } finally {
+        input.close();
+      }
+      return bitmap;
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Unable to read cached poster " + file, e);
+      bitmap.recycle();
+      file.delete();
+      return null;
+    }
+  }
+
+  private static void writePoster(File directory, File file, Bitmap bitmap) {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Unable to create cache directory " + directory);
+      return;
+    }
+    // Write to a temporary file first, so that a partially written file is never read
+    final File tempFile = new File(directory, file.getName() + ".tmp");
+    final int byteCount = bitmap.getByteCount();
+    try {
+      final RandomAccessFile output = new RandomAccessFile(tempFile, "rw");
+      try {
+        output.setLength(byteCount);
+        final MappedByteBuffer buffer =
+            output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, byteCount);
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.force();
+      } finally {
+        output.close();
+      }
+      if (!tempFile.renameTo(file)) {
+        throw new IOException("Unable to rename " + tempFile + " to " + file);
+      }
+    } catch (IOException | RuntimeException e) {
+      Log.w(TAG, "Unable to write poster to cache " + file, e);
+      tempFile.delete();
+    }
+  }
+
+  /** Deletes the files of the video which were extracted from a previous version of its package. */
+  private static void deleteOtherVersions(File directory, String key, String fileName) {
+    final File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      final String name = file.getName();
+      if (name.startsWith(key + "_") && !name.startsWith(fileName)) {
+        file.delete();
+      }
+    }
+  }
+
+  private static String getPackageVersion(Context context, String packageName) {
+    String version = packageVersions.get(packageName);
+    if (version == null) {
+      try {
+        version =
+            Long.toHexString(
+                context.getPackageManager().getPackageInfo(packageName, 0).lastUpdateTime);
+      } catch (PackageManager.NameNotFoundException e) {
+        version = "0";
+      }
+      packageVersions.put(packageName, version);
+    }
+    return version;
+  }
+
+  private static int parseInt(@Nullable String value) {
+    try {
+      return value != null ? Integer.parseInt(value) : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static String getKey(@RawRes int resId, String packageName) {
+    return packageName + "_" + resId;
+  }
+
+  private static String getPosterKey(String key, int width, int height) {
+    return key + "_" + width + "x" + height;
+  }
+
+  private static synchronized Executor getLoadExecutor() {
+    if (loadExecutor == null) {
+      loadExecutor = Executors.newSingleThreadExecutor();
+    }
+    return loadExecutor;
+  }
+
+  private static synchronized Handler getMainHandler() {
+    if (mainHandler == null) {
+      mainHandler = new Handler(Looper.getMainLooper());
+    }
+    return mainHandler;
+  }
+
+  private VideoPosterCache() {}
+}
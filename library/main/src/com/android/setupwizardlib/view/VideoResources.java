@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import androidx.annotation.VisibleForTesting;
+import android.util.Log;
+import android.util.LruCache;
+import java.io.IOException;
+
+/**
+ * Sets raw video resources as the data source of media players and metadata retrievers. Videos are
+ * opened as file descriptors into the APK of their package, which skips the URI parsing and content
+ * resolver lookup of {@code android.resource://} URIs. The resources of recently used packages and
+ * the descriptors of recently used videos are kept, so that creating another player for the same
+ * video doesn't need to look them up again.
+ *
+ * <p>Videos which cannot be opened as a file descriptor, for example because they are compressed in
+ * the APK, fall back to the {@code android.resource://} URI.
+ */
+@TargetApi(VERSION_CODES.ICE_CREAM_SANDWICH)
+final class VideoResources {
+
+  private static final String TAG = "VideoResources";
+
+  private static final int MAX_CACHED_DESCRIPTORS = 8;
+  private static final int MAX_CACHED_PACKAGES = 4;
+
+  /** A cached descriptor, which is closed once it is evicted and no longer in use. */
+  private static final class CachedDescriptor {
+    final AssetFileDescriptor descriptor;
+    int users = 0;
+    boolean evicted = false;
+
+    CachedDescriptor(AssetFileDescriptor descriptor) {
+      this.descriptor = descriptor;
+    }
+  }
+
+  // Guarded by the class lock
+  private static final LruCache<String, Resources> packageResources =
+      new LruCache<>(MAX_CACHED_PACKAGES);
+
+  // Guarded by the class lock. The media framework duplicates the file descriptor when it is set as
+  // a data source, so closing a descriptor after it has been set doesn't affect the player.
+  private static final LruCache<String, CachedDescriptor> descriptors =
+      new LruCache<String, CachedDescriptor>(MAX_CACHED_DESCRIPTORS) {
+        @Override
+        protected void entryRemoved(
+            boolean evicted,
+            String key,
+            CachedDescriptor oldValue,
+            @Nullable CachedDescriptor newValue) {
+          oldValue.evicted = true;
+          if (oldValue.users == 0) {
+            close(oldValue.descriptor);
+          }
+        }
+      };
+
+  static void setDataSource(
+      MediaPlayer mediaPlayer, Context context, @RawRes int resId, String packageName)
+      throws IOException {
+    final CachedDescriptor cached = acquireDescriptor(context, resId, packageName);
+    if (cached != null) {
+      try {
+        final AssetFileDescriptor descriptor = cached.descriptor;
+        mediaPlayer.setDataSource(
+            descriptor.getFileDescriptor(), descriptor.getStartOffset(), descriptor.getLength());
+      } finally {
+        releaseDescriptor(cached);
+      }
+    } else {
+      mediaPlayer.setDataSource(context, getUri(resId, packageName), null);
+    }
+  }
+
+  static void setDataSource(
+      MediaMetadataRetriever retriever, Context context, @RawRes int resId, String packageName) {
+    final CachedDescriptor cached = acquireDescriptor(context, resId, packageName);
+    if (cached != null) {
+      try {
+        final AssetFileDescriptor descriptor = cached.descriptor;
+        retriever.setDataSource(
+            descriptor.getFileDescriptor(), descriptor.getStartOffset(), descriptor.getLength());
+      } finally {
+        releaseDescriptor(cached);
+      }
+    } else {
+      retriever.setDataSource(context, getUri(resId, packageName));
+    }
+  }
+
+  @VisibleForTesting
+  static synchronized void resetForTesting() {
+    descriptors.evictAll();
+    packageResources.evictAll();
+  }
+
+  /**
+   * Gets the cached descriptor of the video, opening it if needed, and marks it as in use so that
+   * it is not closed if it is evicted while the data source is being set. Only the cache lookup is
+   * synchronized, so that setting the data source on one thread doesn't block other threads.
+   *
+   * @return The descriptor, which must be passed to {@link #releaseDescriptor} when it is no longer
+   *     used, or null if the video cannot be opened as a file descriptor.
+   */
+  @Nullable
+  private static synchronized CachedDescriptor acquireDescriptor(
+      Context context, @RawRes int resId, String packageName) {
+    final String key = packageName + "/" + resId;
+    CachedDescriptor cached = descriptors.get(key);
+    if (cached == null) {
+      final Resources resources = getResources(context, packageName);
+      if (resources == null) {
+        return null;
+      }
+      final AssetFileDescriptor descriptor;
+      try {
+        descriptor = resources.openRawResourceFd(resId);
+      } catch (Resources.NotFoundException e) {
+        // Fall back to the URI
+        return null;
+      }
+      if (descriptor == null) {
+        return null;
+      }
+      cached = new CachedDescriptor(descriptor);
+      descriptors.put(key, cached);
+    }
+    cached.users++;
+    return cached;
+  }
+
+  private static synchronized void releaseDescriptor(CachedDescriptor cached) {
+    cached.users--;
+    if (cached.evicted && cached.users == 0) {
+      close(cached.descriptor);
+    }
+  }
+
+  @Nullable
+  private static Resources getResources(Context context, String packageName) {
+    if (packageName.equals(context.getPackageName())) {
+      return context.getResources();
+    }
+    Resources resources = packageResources.get(packageName);
+    if (resources == null) {
+      try {
+        resources = context.getPackageManager().getResourcesForApplication(packageName);
+      } catch (NameNotFoundException e) {
+        Log.w(TAG, "Unable to get resources of " + packageName, e);
+        return null;
+      }
+      packageResources.put(packageName, resources);
+    }
+    return resources;
+  }
+
+  private static Uri getUri(@RawRes int resId, String packageName) {
+    return Uri.parse("android.resource://" + packageName + "/" + resId);
+  }
+
+  private static void close(AssetFileDescriptor descriptor) {
+    try {
+      descriptor.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to close file descriptor", e);
+    }
+  }
+
+  private VideoResources() {}
+}
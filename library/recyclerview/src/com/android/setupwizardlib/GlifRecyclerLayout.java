@@ -78,6 +78,12 @@ public class GlifRecyclerLayout extends GlifLayout {
     mRecyclerMixin.onLayout();
   }
 
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    mRecyclerMixin.onAttachedToWindow();
+  }
+
   @Override
   protected View onInflateTemplate(LayoutInflater inflater, int template) {
     if (template == 0) {
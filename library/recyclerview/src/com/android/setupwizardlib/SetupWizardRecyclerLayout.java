@@ -74,6 +74,12 @@ public class SetupWizardRecyclerLayout extends SetupWizardLayout {
     mRecyclerMixin.onLayout();
   }
 
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    mRecyclerMixin.onAttachedToWindow();
+  }
+
   /** @see RecyclerMixin#getAdapter() */
   public Adapter<? extends ViewHolder> getAdapter() {
     return mRecyclerMixin.getAdapter();
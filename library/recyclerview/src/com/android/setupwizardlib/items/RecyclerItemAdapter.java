@@ -79,6 +79,9 @@ public class RecyclerItemAdapter extends RecyclerView.Adapter<ItemViewHolder>
     if (mItem instanceof AbstractItem) {
       final int id = ((AbstractItem) mItem).getId();
       return id > 0 ? id : RecyclerView.NO_ID;
+    } else if (mItem instanceof ItemTable.RowItem) {
+      final int id = ((ItemTable.RowItem) mItem).getId();
+      return id > 0 ? id : RecyclerView.NO_ID;
     } else {
       return RecyclerView.NO_ID;
     }
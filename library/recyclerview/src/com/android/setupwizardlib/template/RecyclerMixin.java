@@ -63,6 +63,11 @@ public class RecyclerMixin implements Mixin {
   private int dividerInsetStart;
   private int dividerInsetEnd;
 
+  /** Resource ID of the deferred {@code android:entries}, or 0 if there is nothing to inflate. */
+  private int pendingEntries;
+
+  private boolean pendingEntriesHasStableIds;
+
   /**
    * Creates the RecyclerMixin. Unlike typical mixins which are created in the constructor, this
    * mixin should be called in {@link TemplateLayout#onTemplateInflated()}, which is called by the
@@ -103,10 +108,12 @@ public class RecyclerMixin implements Mixin {
 
     final int entries = a.getResourceId(R.styleable.SuwRecyclerMixin_android_entries, 0);
     if (entries != 0) {
-      final ItemHierarchy inflated = new ItemInflater(context).inflate(entries);
-      final RecyclerItemAdapter adapter = new RecyclerItemAdapter(inflated);
-      adapter.setHasStableIds(a.getBoolean(R.styleable.SuwRecyclerMixin_suwHasStableIds, false));
-      setAdapter(adapter);
+      pendingEntries = entries;
+      pendingEntriesHasStableIds =
+          a.getBoolean(R.styleable.SuwRecyclerMixin_suwHasStableIds, false);
+      if (!a.getBoolean(R.styleable.SuwRecyclerMixin_suwDeferEntries, false)) {
+        inflatePendingEntries();
+      }
     }
     int dividerInset = a.getDimensionPixelSize(R.styleable.SuwRecyclerMixin_suwDividerInset, -1);
     if (dividerInset != -1) {
@@ -155,13 +162,37 @@ public class RecyclerMixin implements Mixin {
     }
   }
 
+  /**
+   * Recycler mixin inflates deferred {@code android:entries} when the template is first attached
+   * to a window. This method should be called when {@link View#onAttachedToWindow()} of the
+   * template is called.
+   */
+  public void onAttachedToWindow() {
+    inflatePendingEntries();
+  }
+
+  private void inflatePendingEntries() {
+    if (pendingEntries != 0) {
+      final int entries = pendingEntries;
+      pendingEntries = 0;
+      final ItemHierarchy inflated =
+          new ItemInflater(templateLayout.getContext()).inflate(entries);
+      final RecyclerItemAdapter adapter = new RecyclerItemAdapter(inflated);
+      adapter.setHasStableIds(pendingEntriesHasStableIds);
+      setAdapter(adapter);
+    }
+  }
+
   /**
    * Gets the adapter of the recycler view in this layout. If the adapter includes a header, this
-   * method will unwrap it and return the underlying adapter.
+   * method will unwrap it and return the underlying adapter. If the inflation of {@code
+   * android:entries} is deferred using {@code app:suwDeferEntries}, calling this method will
+   * inflate the entries.
    *
    * @return The adapter, or {@code null} if the recycler view has no adapter.
    */
   public Adapter<? extends ViewHolder> getAdapter() {
+    inflatePendingEntries();
     @SuppressWarnings("unchecked") // RecyclerView.getAdapter returns raw type :(
     final RecyclerView.Adapter<? extends ViewHolder> adapter = recyclerView.getAdapter();
     if (adapter instanceof HeaderAdapter) {
@@ -170,8 +201,12 @@ public class RecyclerMixin implements Mixin {
     return adapter;
   }
 
-  /** Sets the adapter on the recycler view in this layout. */
+  /**
+   * Sets the adapter on the recycler view in this layout. This replaces any {@code
+   * android:entries} whose inflation is still deferred.
+   */
   public void setAdapter(Adapter<? extends ViewHolder> adapter) {
+    pendingEntries = 0;
     recyclerView.setAdapter(adapter);
   }
 
@@ -26,6 +26,7 @@ import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
@@ -37,11 +38,13 @@ import android.widget.FrameLayout;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
+import com.android.setupwizardlib.items.RecyclerItemAdapter.OnItemSelectedListener;
 import com.android.setupwizardlib.items.RecyclerItemAdapter.PatchedLayerDrawable;
 import com.android.setupwizardlib.test.R;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -153,4 +156,33 @@ public class RecyclerItemAdapterTest {
     PatchedLayerDrawable layerDrawable = (PatchedLayerDrawable) background;
     assertTrue(layerDrawable.getDrawable(0) instanceof GradientDrawable);
   }
+
+  @Test
+  public void testClickItemTableRowAfterBindingAnotherRow() {
+    final ItemTable itemTable = new ItemTable();
+    itemTable.addRow(
+        1234, "Title 0", null, true, com.android.setupwizardlib.R.layout.suw_items_default);
+    itemTable.addRow(
+        5678, "Title 1", null, false, com.android.setupwizardlib.R.layout.suw_items_default);
+    final RecyclerItemAdapter adapter = new RecyclerItemAdapter(itemTable);
+    assertEquals(5678, adapter.getItemId(1));
+    final OnItemSelectedListener listener = mock(OnItemSelectedListener.class);
+    adapter.setOnItemSelectedListener(listener);
+    final FrameLayout parent = new FrameLayout(InstrumentationRegistry.getContext());
+
+    final ItemViewHolder holder0 = adapter.onCreateViewHolder(parent, adapter.getItemViewType(0));
+    adapter.onBindViewHolder(holder0, 0);
+    final ItemViewHolder holder1 = adapter.onCreateViewHolder(parent, adapter.getItemViewType(1));
+    adapter.onBindViewHolder(holder1, 1);
+
+    holder0.itemView.performClick();
+
+    final ArgumentCaptor<IItem> captor = ArgumentCaptor.forClass(IItem.class);
+    verify(listener).onItemSelected(captor.capture());
+    assertTrue(captor.getValue().isEnabled());
+    assertEquals(1234, ((ItemTable.RowItem) captor.getValue()).getId());
+
+    holder1.itemView.performClick();
+    verifyNoMoreInteractions(listener);
+  }
 }
@@ -19,12 +19,14 @@ package com.android.setupwizardlib.template;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 
 import android.content.Context;
+import android.content.res.XmlResourceParser;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.InsetDrawable;
@@ -32,17 +34,22 @@ import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.Adapter;
+import android.util.AttributeSet;
+import android.util.Xml;
 import android.view.View;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
 import com.android.setupwizardlib.TemplateLayout;
+import com.android.setupwizardlib.items.RecyclerItemAdapter;
 import com.android.setupwizardlib.test.R;
+import java.io.IOException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.xmlpull.v1.XmlPullParserException;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -163,4 +170,49 @@ public class RecyclerMixinTest {
     }
     // else the test passes
   }
+
+  @Test
+  public void testDeferredEntriesInflatedOnAttach() throws Exception {
+    RecyclerMixin mixin = new RecyclerMixin(mTemplateLayout, mRecyclerView);
+    mixin.parseAttributes(getDeferredEntriesAttributes(), 0);
+    assertNull(mRecyclerView.getAdapter());
+
+    mixin.onAttachedToWindow();
+
+    assertTrue(mRecyclerView.getAdapter() instanceof RecyclerItemAdapter);
+    assertEquals(2, mRecyclerView.getAdapter().getItemCount());
+  }
+
+  @Test
+  public void testDeferredEntriesInflatedByGetAdapter() throws Exception {
+    RecyclerMixin mixin = new RecyclerMixin(mTemplateLayout, mRecyclerView);
+    mixin.parseAttributes(getDeferredEntriesAttributes(), 0);
+    assertNull(mRecyclerView.getAdapter());
+
+    final Adapter adapter = mixin.getAdapter();
+
+    assertTrue(adapter instanceof RecyclerItemAdapter);
+    assertSame(adapter, mRecyclerView.getAdapter());
+  }
+
+  @Test
+  public void testSetAdapterDiscardsDeferredEntries() throws Exception {
+    RecyclerMixin mixin = new RecyclerMixin(mTemplateLayout, mRecyclerView);
+    mixin.parseAttributes(getDeferredEntriesAttributes(), 0);
+
+    mixin.setAdapter(mAdapter);
+    mixin.onAttachedToWindow();
+
+    assertSame(mAdapter, mixin.getAdapter());
+  }
+
+  @SuppressWarnings("ResourceType") // Needed to create attribute set from layout XML.
+  private AttributeSet getDeferredEntriesAttributes() throws IOException, XmlPullParserException {
+    final XmlResourceParser parser =
+        mContext.getResources().getXml(R.layout.test_mixin_deferred_entries);
+    while (!TemplateLayout.class.getName().equals(parser.getName())) {
+      parser.next();
+    }
+    return Xml.asAttributeSet(parser);
+  }
 }
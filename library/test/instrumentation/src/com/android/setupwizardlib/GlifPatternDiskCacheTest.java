@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SmallTest;
+import android.support.test.runner.AndroidJUnit4;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class GlifPatternDiskCacheTest {
+
+  private File directory;
+  private GlifPatternDiskCache diskCache;
+
+  @Before
+  public void setUp() {
+    directory =
+        new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "test_glif_pattern");
+    deleteDirectory();
+    diskCache = new GlifPatternDiskCache(directory);
+  }
+
+  @After
+  public void tearDown() {
+    deleteDirectory();
+  }
+
+  @Test
+  public void testWriteAndRead() {
+    final Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ALPHA_8);
+    new Canvas(bitmap).drawColor(Color.argb(66, 0, 0, 0));
+    bitmap.setPixel(10, 10, Color.argb(130, 0, 0, 0));
+
+    diskCache.write(3, bitmap);
+    final Bitmap result = diskCache.read(3, 100, 50);
+
+    assertNotNull("Bitmap should be read from disk cache", result);
+    assertTrue("Bitmap read from disk cache should be the same", bitmap.sameAs(result));
+  }
+
+  @Test
+  public void testReadMissingBucket() {
+    assertNull("Bitmap should not be in disk cache", diskCache.read(3, 100, 50));
+  }
+
+  @Test
+  public void testReadWrongSize() {
+    diskCache.write(3, Bitmap.createBitmap(100, 50, Bitmap.Config.ALPHA_8));
+
+    assertNull("Bitmap of a different size should not be read", diskCache.read(3, 200, 100));
+    assertNull("Mismatched file should be deleted", diskCache.read(3, 100, 50));
+  }
+
+  @Test
+  public void testTrim() throws IOException {
+    diskCache.write(3, Bitmap.createBitmap(100, 50, Bitmap.Config.ALPHA_8));
+    final File oldFile = new File(directory, "pattern_0_3.a8");
+    assertTrue("Old file should be created", oldFile.createNewFile());
+
+    diskCache.trim();
+
+    assertFalse("Old file should be deleted", oldFile.exists());
+    assertNotNull("Current file should be kept", diskCache.read(3, 100, 50));
+  }
+
+  private void deleteDirectory() {
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+}
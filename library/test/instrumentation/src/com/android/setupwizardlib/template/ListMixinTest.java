@@ -19,6 +19,7 @@ package com.android.setupwizardlib.template;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -27,11 +28,14 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import android.content.Context;
+import android.content.res.XmlResourceParser;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.InsetDrawable;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import android.util.AttributeSet;
+import android.util.Xml;
 import android.view.View;
 import android.widget.ListAdapter;
 import android.widget.ListView;
@@ -39,12 +43,15 @@ import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
 import com.android.setupwizardlib.TemplateLayout;
+import com.android.setupwizardlib.items.ItemAdapter;
 import com.android.setupwizardlib.test.R;
+import java.io.IOException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.xmlpull.v1.XmlPullParserException;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -184,4 +191,46 @@ public class ListMixinTest {
 
     verifyNoMoreInteractions(mListView);
   }
+
+  @Test
+  public void testDeferredEntriesInflatedOnAttach() throws Exception {
+    ListMixin mixin = new ListMixin(mTemplateLayout, getDeferredEntriesAttributes(), 0);
+    assertNull(mListView.getAdapter());
+
+    mixin.onAttachedToWindow();
+
+    assertTrue(mListView.getAdapter() instanceof ItemAdapter);
+    assertEquals(2, mListView.getAdapter().getCount());
+  }
+
+  @Test
+  public void testDeferredEntriesInflatedByGetAdapter() throws Exception {
+    ListMixin mixin = new ListMixin(mTemplateLayout, getDeferredEntriesAttributes(), 0);
+    assertNull(mListView.getAdapter());
+
+    final ListAdapter adapter = mixin.getAdapter();
+
+    assertTrue(adapter instanceof ItemAdapter);
+    assertSame(adapter, mListView.getAdapter());
+  }
+
+  @Test
+  public void testSetAdapterDiscardsDeferredEntries() throws Exception {
+    ListMixin mixin = new ListMixin(mTemplateLayout, getDeferredEntriesAttributes(), 0);
+
+    mixin.setAdapter(mAdapter);
+    mixin.onAttachedToWindow();
+
+    assertSame(mAdapter, mixin.getAdapter());
+  }
+
+  @SuppressWarnings("ResourceType") // Needed to create attribute set from layout XML.
+  private AttributeSet getDeferredEntriesAttributes() throws IOException, XmlPullParserException {
+    final XmlResourceParser parser =
+        mContext.getResources().getXml(R.layout.test_mixin_deferred_entries);
+    while (!TemplateLayout.class.getName().equals(parser.getName())) {
+      parser.next();
+    }
+    return Xml.asAttributeSet(parser);
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.test;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.util.Log;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import com.android.setupwizardlib.GlifPatternDrawable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the time it takes to redraw a full screen GLIF pattern once the pattern is cached, which
+ * is dominated by the number of pixels filled on every draw, and the memory used by the first draw
+ * in the bitmap and vector rendering modes.
+ *
+ * <p>The drawable is drawn into a software canvas, so the numbers are only comparable with each
+ * other and not with the frame time on a hardware accelerated window.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class GlifPatternDrawableBenchmarkTest {
+
+  private static final String TAG = "GlifPatternBenchmark";
+
+  private static final int WIDTH = 1366;
+  private static final int HEIGHT = 768;
+  // Size of a large tablet screen, where the bitmap cache is scaled up beyond its maximum size
+  private static final int TABLET_WIDTH = 2560;
+  private static final int TABLET_HEIGHT = 1600;
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 50;
+
+  @Before
+  public void setUp() {
+    GlifPatternDrawable.invalidatePattern();
+  }
+
+  @Test
+  public void testDraw() {
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    Log.i(TAG, "Draw time, three passes: " + measureDraw(drawable, WIDTH, HEIGHT) + "ns");
+  }
+
+  @Test
+  public void testDrawComposited() {
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setCompositedRendering(true);
+    Log.i(TAG, "Draw time, composited: " + measureDraw(drawable, WIDTH, HEIGHT) + "ns");
+  }
+
+  @Test
+  public void testDrawBitmapTablet() {
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    Log.i(
+        TAG,
+        "Draw time, bitmap on tablet: "
+            + measureDraw(drawable, TABLET_WIDTH, TABLET_HEIGHT)
+            + "ns");
+  }
+
+  @Test
+  public void testDrawVectorTablet() {
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setVectorRendering(true);
+    Log.i(
+        TAG,
+        "Draw time, vector on tablet: "
+            + measureDraw(drawable, TABLET_WIDTH, TABLET_HEIGHT)
+            + "ns");
+  }
+
+  /** @return The average time of drawing the given drawable in nanoseconds. */
+  private long measureDraw(GlifPatternDrawable drawable, int width, int height) {
+    final Canvas canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+    drawable.setBounds(0, 0, width, height);
+
+    final long memoryBefore = getAllocatedMemory();
+    drawable.draw(canvas);
+    Log.i(TAG, "Memory allocated by first draw: " + (getAllocatedMemory() - memoryBefore) + "B");
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      drawable.draw(canvas);
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      drawable.draw(canvas);
+    }
+    return (System.nanoTime() - start) / ITERATIONS;
+  }
+
+  /** @return The number of bytes allocated on the Java and native heaps. */
+  private static long getAllocatedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+  }
+}
@@ -19,13 +19,16 @@ package com.android.setupwizardlib.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.os.Debug;
+import android.os.SystemClock;
 import android.util.Log;
+import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
 import android.support.test.runner.AndroidJUnit4;
 import com.android.setupwizardlib.GlifPatternDrawable;
@@ -82,6 +85,200 @@ public class GlifPatternDrawableTest {
     assertSameColor("Bottom right pixel should be #d40808", 0xffd40808, bitmap.getPixel(1365, 767));
   }
 
+  @Test
+  public void testBitmapCacheMultipleSizes() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    final int hitsBefore = GlifPatternDrawable.getBitmapCacheHitCount();
+    final int missesBefore = GlifPatternDrawable.getBitmapCacheMissCount();
+
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setBounds(0, 0, 1366, 768);
+    drawable.draw(canvas);
+    drawable.setBounds(0, 0, 683, 384);
+    drawable.draw(canvas);
+    drawable.setBounds(0, 0, 1366, 768);
+    drawable.draw(canvas);
+
+    assertEquals(
+        "Each size should be rendered once",
+        2,
+        GlifPatternDrawable.getBitmapCacheMissCount() - missesBefore);
+    assertEquals(
+        "Drawing the first size again should hit the cache",
+        1,
+        GlifPatternDrawable.getBitmapCacheHitCount() - hitsBefore);
+    assertSameColor("Top left pixel should be #e61a1a", 0xffe61a1a, bitmap.getPixel(0, 0));
+  }
+
+  @Test
+  public void testAsyncRendering() throws Exception {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setAsyncRendering(true);
+    drawable.setBounds(0, 0, 1366, 768);
+    drawable.draw(canvas);
+
+    assertSameColor(
+        "Solid color should be drawn while rendering", 0xffcc0000, bitmap.getPixel(683, 384));
+
+    // Wait for the pattern to be rendered on the background thread
+    final long timeout = SystemClock.uptimeMillis() + 5000;
+    do {
+      Thread.sleep(50);
+      drawable.draw(canvas);
+    } while (bitmap.getPixel(683, 384) != 0xffd90d0d && SystemClock.uptimeMillis() < timeout);
+
+    assertSameColor("Center pixel should be #d90d0d", 0xffd90d0d, bitmap.getPixel(683, 384));
+  }
+
+  @Test
+  public void testCompositedRendering() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setCompositedRendering(true);
+    drawable.setBounds(0, 0, 1366, 768);
+    drawable.draw(canvas);
+
+    // The composited bitmap is RGB_565, so allow for the loss of precision
+    assertSimilarColor("Top left pixel should be #e61a1a", 0xffe61a1a, bitmap.getPixel(0, 0));
+    assertSimilarColor("Center pixel should be #d90d0d", 0xffd90d0d, bitmap.getPixel(683, 384));
+
+    drawable.setColor(Color.BLUE);
+    drawable.draw(canvas);
+
+    assertSimilarColor(
+        "Center pixel should be #0d0dd9 after changing color",
+        0xff0d0dd9,
+        bitmap.getPixel(683, 384));
+  }
+
+  @Test
+  public void testBitmapCacheSizeTooSmall() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    GlifPatternDrawable.setBitmapCacheSize(0);
+    try {
+      final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+      drawable.setBounds(0, 0, 1366, 768);
+      drawable.draw(canvas);
+      drawable.draw(canvas);
+
+      assertEquals(
+          "Pattern should be rendered once", 1, GlifPatternDrawable.getBitmapCacheMissCount());
+      assertEquals(
+          "Pattern should still be cached", 1, GlifPatternDrawable.getBitmapCacheHitCount());
+    } finally {
+      GlifPatternDrawable.setBitmapCacheSize(16 * 1024 * 1024);
+    }
+  }
+
+  @Test
+  public void testCompositedRenderingCachedPerSize() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setCompositedRendering(true);
+    final GlifPatternDrawable smallDrawable =
+        (GlifPatternDrawable) drawable.getConstantState().newDrawable();
+    drawable.setBounds(0, 0, 1366, 768);
+    smallDrawable.setBounds(0, 0, 683, 384);
+
+    drawable.draw(canvas);
+    smallDrawable.draw(canvas);
+    final int hitsBefore = GlifPatternDrawable.getBitmapCacheHitCount();
+    final int missesBefore = GlifPatternDrawable.getBitmapCacheMissCount();
+    drawable.draw(canvas);
+
+    assertEquals(
+        "Tinted pattern of the first size should still be cached",
+        1,
+        GlifPatternDrawable.getBitmapCacheHitCount() - hitsBefore);
+    assertEquals(0, GlifPatternDrawable.getBitmapCacheMissCount() - missesBefore);
+    assertSimilarColor("Center pixel should be #d90d0d", 0xffd90d0d, bitmap.getPixel(683, 384));
+  }
+
+  @Test
+  public void testVectorRendering() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    final int missesBefore = GlifPatternDrawable.getBitmapCacheMissCount();
+
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setVectorRendering(true);
+    drawable.setBounds(0, 0, 1366, 768);
+    drawable.draw(canvas);
+
+    assertSimilarColor("Top left pixel should be #e61a1a", 0xffe61a1a, bitmap.getPixel(0, 0));
+    assertSimilarColor("Center pixel should be #d90d0d", 0xffd90d0d, bitmap.getPixel(683, 384));
+    assertEquals(
+        "Vector rendering should not use the bitmap cache",
+        0,
+        GlifPatternDrawable.getBitmapCacheMissCount() - missesBefore);
+  }
+
+  @Test
+  public void testPrerenderedPattern() {
+    final Bitmap bitmap = Bitmap.createBitmap(1366, 768, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    final Context context = InstrumentationRegistry.getTargetContext();
+
+    GlifPatternDrawable.setPrerenderedPatternEnabled(context, true);
+    try {
+      final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+      drawable.setBounds(0, 0, 1366, 768);
+      drawable.draw(canvas);
+    } finally {
+      GlifPatternDrawable.setPrerenderedPatternEnabled(context, false);
+    }
+
+    assertSimilarColor("Top left pixel should be #e61a1a", 0xffe61a1a, bitmap.getPixel(0, 0));
+    assertSimilarColor("Center pixel should be #d90d0d", 0xffd90d0d, bitmap.getPixel(683, 384));
+  }
+
+  @Test
+  public void testConstantState() {
+    final GlifPatternDrawable drawable = new GlifPatternDrawable(Color.RED);
+    drawable.setCompositedRendering(true);
+
+    final GlifPatternDrawable newDrawable =
+        (GlifPatternDrawable) drawable.getConstantState().newDrawable();
+
+    assertEquals("New drawable should have the same color", Color.RED, newDrawable.getColor());
+    assertTrue("New drawable should be composited", newDrawable.isCompositedRendering());
+  }
+
+  @Test
+  public void testMutate() {
+    final GlifPatternDrawable drawable = GlifPatternDrawable.getCachedDrawable(Color.RED);
+    drawable.mutate();
+    drawable.setColor(Color.BLUE);
+
+    assertEquals(
+        "Mutated drawable should not change the cached color",
+        Color.RED,
+        GlifPatternDrawable.getCachedDrawable(Color.RED).getColor());
+  }
+
+  @Test
+  public void testSetDefaultRenderingAppliesToCachedDrawables() {
+    GlifPatternDrawable.getCachedDrawable(Color.RED);
+    try {
+      GlifPatternDrawable.setDefaultCompositedRendering(true);
+
+      assertTrue(
+          "Cached drawable should use the new default",
+          GlifPatternDrawable.getCachedDrawable(Color.RED).isCompositedRendering());
+    } finally {
+      GlifPatternDrawable.setDefaultCompositedRendering(false);
+    }
+  }
+
   @Test
   public void testScaleToCanvasSquare() {
     final Canvas canvas = new Canvas();
@@ -165,6 +362,21 @@ public class GlifPatternDrawableTest {
     assertTrue("Memory allocation should not exceed 5MB", memoryAfter < memoryBefore + 5000);
   }
 
+  private void assertSimilarColor(String message, int expected, int actual) {
+    final int tolerance = 8;
+    if (Math.abs(Color.red(expected) - Color.red(actual)) > tolerance
+        || Math.abs(Color.green(expected) - Color.green(actual)) > tolerance
+        || Math.abs(Color.blue(expected) - Color.blue(actual)) > tolerance) {
+      throw new AssertionFailedError(
+          message
+              + " expected <#"
+              + Integer.toHexString(expected)
+              + "> but found <#"
+              + Integer.toHexString(actual)
+              + "> instead");
+    }
+  }
+
   private void assertSameColor(String message, int expected, int actual) {
     try {
       assertEquals(expected, actual);
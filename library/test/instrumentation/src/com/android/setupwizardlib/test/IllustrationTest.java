@@ -18,11 +18,15 @@ package com.android.setupwizardlib.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
 import android.view.View;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.filters.SmallTest;
@@ -60,4 +64,32 @@ public class IllustrationTest {
     // (300px / 3) round down to nearest mod (8dp = 16px) = 96px
     assertEquals("Top padding should be 96", 96, illustration.getPaddingTop());
   }
+
+  @Test
+  public void testFlattened() {
+    final Illustration illustration = new Illustration(InstrumentationRegistry.getContext());
+    illustration.setAspectRatio(3.0f);
+    final ShapeDrawable illustrationDrawable = new ShapeDrawable();
+    illustrationDrawable.getPaint().setColor(Color.BLUE);
+    illustrationDrawable.setIntrinsicWidth(300);
+    illustrationDrawable.setIntrinsicHeight(100);
+    illustration.setBackgroundDrawable(new ColorDrawable(Color.RED));
+    illustration.setIllustration(illustrationDrawable);
+    illustration.setFlattened(true);
+    assertTrue("Illustration should be flattened", illustration.isFlattened());
+
+    illustration.measure(
+        View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY));
+    illustration.layout(0, 0, 300, 300);
+
+    final Bitmap bitmap = Bitmap.createBitmap(300, 300, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    illustration.draw(canvas);
+    // Draw again to make sure the cached bitmap is drawn correctly
+    illustration.draw(canvas);
+
+    assertEquals("Illustration should be drawn at the top", Color.BLUE, bitmap.getPixel(150, 0));
+    assertEquals("Background should be drawn at the bottom", Color.RED, bitmap.getPixel(150, 299));
+  }
 }
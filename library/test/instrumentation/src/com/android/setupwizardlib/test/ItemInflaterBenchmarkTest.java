@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.test;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import com.android.setupwizardlib.items.AbstractItem;
+import com.android.setupwizardlib.items.ItemHierarchy;
+import com.android.setupwizardlib.items.ItemInflater;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the time it takes to inflate a list of 200 items from XML, using {@link
+ * com.android.setupwizardlib.items.Item}, which resolves all its attributes in one styleable,
+ * against {@link LegacyItem}, which resolves {@code android:id} and the item attributes in two
+ * styleables like {@code Item} used to.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ItemInflaterBenchmarkTest {
+
+  private static final String TAG = "ItemInflaterBenchmark";
+
+  private static final int ITEM_COUNT = 200;
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 20;
+
+  private Context mContext;
+
+  @Before
+  public void setUp() {
+    mContext = InstrumentationRegistry.getContext();
+  }
+
+  @Test
+  public void testInflateItems() {
+    final long legacyTime = measureInflationTimePerItem(new LegacyItemInflater(mContext));
+    final long time = measureInflationTimePerItem(new ItemInflater(mContext));
+
+    Log.i(
+        TAG,
+        "Inflation time per item: "
+            + time
+            + "ns, with two styleables per item: "
+            + legacyTime
+            + "ns, saving: "
+            + (legacyTime - time)
+            + "ns");
+  }
+
+  private long measureInflationTimePerItem(ItemInflater inflater) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      inflater.inflate(R.xml.test_items_benchmark);
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      final ItemHierarchy items = inflater.inflate(R.xml.test_items_benchmark);
+      assertEquals("Should inflate " + ITEM_COUNT + " items", ITEM_COUNT, items.getCount());
+    }
+    return (System.nanoTime() - start) / (ITERATIONS * ITEM_COUNT);
+  }
+
+  /** Inflates {@code <Item>} tags as {@link LegacyItem}. */
+  private static class LegacyItemInflater extends ItemInflater {
+
+    LegacyItemInflater(Context context) {
+      super(context);
+    }
+
+    @Override
+    protected ItemHierarchy onCreateItem(String tagName, AttributeSet attrs) {
+      if ("Item".equals(tagName)) {
+        return new LegacyItem(getContext(), attrs);
+      }
+      return super.onCreateItem(tagName, attrs);
+    }
+  }
+
+  /**
+   * An item which resolves its attributes the way {@code Item} did before they were merged into a
+   * single styleable: {@code android:id} in {@code SuwAbstractItem}, and the rest in {@code
+   * SuwItem}.
+   */
+  private static class LegacyItem extends AbstractItem {
+
+    // The same attributes as Item reads, so that the inflation cost is comparable
+    private final boolean enabled;
+    private final Drawable icon;
+    private final CharSequence title;
+    private final CharSequence summary;
+    private final int layoutRes;
+    private final boolean visible;
+
+    LegacyItem(Context context, AttributeSet attrs) {
+      super(context, attrs);
+      TypedArray a =
+          context.obtainStyledAttributes(attrs, com.android.setupwizardlib.R.styleable.SuwItem);
+      enabled = a.getBoolean(com.android.setupwizardlib.R.styleable.SuwItem_android_enabled, true);
+      icon = a.getDrawable(com.android.setupwizardlib.R.styleable.SuwItem_android_icon);
+      title = a.getText(com.android.setupwizardlib.R.styleable.SuwItem_android_title);
+      summary = a.getText(com.android.setupwizardlib.R.styleable.SuwItem_android_summary);
+      layoutRes =
+          a.getResourceId(
+              com.android.setupwizardlib.R.styleable.SuwItem_android_layout,
+              com.android.setupwizardlib.R.layout.suw_items_default);
+      visible = a.getBoolean(com.android.setupwizardlib.R.styleable.SuwItem_android_visible, true);
+      a.recycle();
+    }
+
+    @Override
+    public int getCount() {
+      return visible ? 1 : 0;
+    }
+
+    @Override
+    public int getLayoutResource() {
+      return layoutRes;
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    @Override
+    public void onBindView(View view) {}
+  }
+}
@@ -18,6 +18,7 @@ package com.android.setupwizardlib.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -86,6 +87,27 @@ public class ItemTest {
     assertEquals("Icon should be level 4", 4, icon.getLevel());
   }
 
+  @Test
+  public void testLazyIcon() {
+    Item item1 = new Item();
+    item1.setIcon(R.drawable.suw_layout_background);
+    Item item2 = new Item();
+    item2.setIcon(R.drawable.suw_layout_background);
+
+    assertNull("Icon should not be loaded before binding", item1.getIcon());
+
+    item1.onBindView(createLayout());
+    item2.onBindView(createLayout());
+
+    assertNotNull("Icon should be loaded after binding", item1.getIcon());
+    assertSame("Icon should be bound to the view", item2.getIcon(), mIconView.getDrawable());
+    assertEquals("IconContainer should be visible", View.VISIBLE, mIconContainer.getVisibility());
+    assertSame(
+        "Icons from the same resource should share constant state",
+        item1.getIcon().getConstantState(),
+        item2.getIcon().getConstantState());
+  }
+
   @Test
   public void testSingleLineItem() {
     Item item = new Item();
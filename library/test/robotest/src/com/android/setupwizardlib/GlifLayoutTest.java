@@ -146,6 +146,31 @@ public class GlifLayoutTest {
     assertThat(layout.getBackgroundBaseColor().getDefaultColor()).isEqualTo(Color.RED);
   }
 
+  @Test
+  public void setBackgroundBaseColor_shouldNotAffectOtherLayouts() {
+    GlifLayout redLayout = new GlifLayout(context);
+    redLayout.setBackgroundBaseColor(ColorStateList.valueOf(Color.RED));
+    GlifLayout otherRedLayout = new GlifLayout(context);
+    otherRedLayout.setBackgroundBaseColor(ColorStateList.valueOf(Color.RED));
+    GlifLayout blueLayout = new GlifLayout(context);
+    blueLayout.setBackgroundBaseColor(ColorStateList.valueOf(Color.BLUE));
+
+    // Backgrounds of the same color share their state, so they must be mutated before changing
+    final GlifPatternDrawable redBackground =
+        (GlifPatternDrawable) getPhoneBackground(redLayout).mutate();
+    redBackground.setColor(Color.GREEN);
+    redBackground.setCompositedRendering(!redBackground.isCompositedRendering());
+
+    final GlifPatternDrawable otherRedBackground =
+        (GlifPatternDrawable) getPhoneBackground(otherRedLayout);
+    assertThat(otherRedBackground.getColor()).isEqualTo(Color.RED);
+    assertThat(otherRedBackground.isCompositedRendering())
+        .isNotEqualTo(redBackground.isCompositedRendering());
+    assertThat(((GlifPatternDrawable) getPhoneBackground(blueLayout)).getColor())
+        .isEqualTo(Color.BLUE);
+    assertThat(GlifPatternDrawable.getCachedDrawable(Color.RED).getColor()).isEqualTo(Color.RED);
+  }
+
   @Config(qualifiers = "sw600dp")
   @Test
   public void testSetBackgroundBaseColorTablet() {
@@ -195,6 +220,19 @@ public class GlifLayoutTest {
     assertThat(layout.isBackgroundPatterned()).named("background is patterned").isFalse();
   }
 
+  @Test
+  public void testBackgroundSharesConstantState() {
+    GlifLayout layout1 = new GlifLayout(context);
+    layout1.setBackgroundBaseColor(ColorStateList.valueOf(Color.RED));
+    GlifLayout layout2 = new GlifLayout(context);
+    layout2.setBackgroundBaseColor(ColorStateList.valueOf(Color.RED));
+
+    final Drawable background1 = getPhoneBackground(layout1);
+    final Drawable background2 = getPhoneBackground(layout2);
+    assertThat(background2).isNotSameAs(background1);
+    assertThat(background2.getConstantState()).isSameAs(background1.getConstantState());
+  }
+
   @Test
   public void testNonGlifTheme() {
     context = new ContextThemeWrapper(application, android.R.style.Theme);
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Config.OLDEST_SDK, Config.NEWEST_SDK})
+public class GlifPatternPathsTest {
+
+  @Test
+  public void prerenderedPatternVersion_shouldMatchPaths() {
+    assertWithMessage("Pre-rendered pattern is out of date, run ./gradlew generateGlifPattern")
+        .that(application.getResources().getInteger(R.integer.suw_glif_pattern_version))
+        .isEqualTo(GlifPatternPaths.VERSION);
+  }
+
+  @Test
+  public void getPrerenderedPatternIndex_shouldChooseSmallestPatternAtLeastBucketSize() {
+    // Buckets are in 1/8 of the viewbox scale, pre-rendered patterns at 0.5, 0.75, 1 and 1.5
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(1)).isEqualTo(0);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(4)).isEqualTo(0);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(5)).isEqualTo(1);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(8)).isEqualTo(2);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(9)).isEqualTo(3);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(12)).isEqualTo(3);
+    assertThat(GlifPatternDrawable.getPrerenderedPatternIndex(13)).isEqualTo(-1);
+  }
+}
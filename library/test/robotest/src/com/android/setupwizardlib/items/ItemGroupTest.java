@@ -22,6 +22,7 @@ import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -100,6 +101,66 @@ public class ItemGroupTest {
     verify(observer).onItemRangeRemoved(eq(itemGroup), eq(0), eq(2));
   }
 
+  @Test
+  public void testAddChildren() {
+    itemGroup.addChild(CHILD_1);
+    itemGroup.addChildren(0, Arrays.asList(CHILD_2, new ItemGroup(), CHILD_3));
+
+    assertWithMessage("Item at position 0 should be child2")
+        .that(itemGroup.getItemAt(0))
+        .isSameAs(CHILD_2);
+    assertWithMessage("Item at position 1 should be child3")
+        .that(itemGroup.getItemAt(1))
+        .isSameAs(CHILD_3);
+    assertWithMessage("Item at position 2 should be child1")
+        .that(itemGroup.getItemAt(2))
+        .isSameAs(CHILD_1);
+    assertWithMessage("Should have 3 children").that(itemGroup.getCount()).isEqualTo(3);
+
+    final InOrder inOrder = inOrder(observer);
+    inOrder.verify(observer).onItemRangeInserted(eq(itemGroup), eq(0), eq(1));
+    inOrder.verify(observer).onItemRangeInserted(eq(itemGroup), eq(0), eq(2));
+    verifyNoMoreInteractions(observer);
+  }
+
+  @Test
+  public void testRemoveChildren() {
+    itemGroup.addChildren(0, Arrays.asList(CHILD_1, CHILD_2, CHILD_3, CHILD_4));
+
+    itemGroup.removeChildren(1, 3);
+
+    assertWithMessage("Item at position 0 should be child1")
+        .that(itemGroup.getItemAt(0))
+        .isSameAs(CHILD_1);
+    assertWithMessage("Item at position 1 should be child4")
+        .that(itemGroup.getItemAt(1))
+        .isSameAs(CHILD_4);
+    assertWithMessage("Should have 2 children").that(itemGroup.getCount()).isEqualTo(2);
+
+    final InOrder inOrder = inOrder(observer);
+    inOrder.verify(observer).onItemRangeInserted(eq(itemGroup), eq(0), eq(4));
+    inOrder.verify(observer).onItemRangeRemoved(eq(itemGroup), eq(1), eq(2));
+    verifyNoMoreInteractions(observer);
+  }
+
+  @Test
+  public void testSetChildren() {
+    itemGroup.addChildren(0, Arrays.asList(CHILD_1, CHILD_2));
+
+    itemGroup.setChildren(Arrays.asList(CHILD_3, CHILD_4, CHILD_1));
+
+    assertWithMessage("Item at position 0 should be child3")
+        .that(itemGroup.getItemAt(0))
+        .isSameAs(CHILD_3);
+    assertWithMessage("Should have 3 children").that(itemGroup.getCount()).isEqualTo(3);
+
+    final InOrder inOrder = inOrder(observer);
+    inOrder.verify(observer).onItemRangeInserted(eq(itemGroup), eq(0), eq(2));
+    inOrder.verify(observer).onItemRangeRemoved(eq(itemGroup), eq(0), eq(2));
+    inOrder.verify(observer).onItemRangeInserted(eq(itemGroup), eq(0), eq(3));
+    verifyNoMoreInteractions(observer);
+  }
+
   @Test
   public void testNestedGroup() {
     ItemGroup parentGroup = new ItemGroup();
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.items;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+import com.android.setupwizardlib.R;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Config.OLDEST_SDK, Config.NEWEST_SDK})
+public class ItemTableTest {
+
+  private ItemTable itemTable;
+
+  @Mock private ItemHierarchy.Observer observer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    itemTable = new ItemTable(1);
+    itemTable.registerObserver(observer);
+  }
+
+  @Test
+  public void addRow_shouldGrowAndNotify() {
+    itemTable.addRow("Title 0", "Summary 0");
+    itemTable.addRow(1234, "Title 1", null, false, R.layout.suw_items_default);
+
+    assertThat(itemTable.getCount()).isEqualTo(2);
+    assertThat(itemTable.getTitle(1).toString()).isEqualTo("Title 1");
+    assertThat(itemTable.isEnabled(1)).isFalse();
+    assertThat(itemTable.indexOfId(1234)).isEqualTo(1);
+
+    final InOrder inOrder = inOrder(observer);
+    inOrder.verify(observer).onItemRangeInserted(eq(itemTable), eq(0), eq(1));
+    inOrder.verify(observer).onItemRangeInserted(eq(itemTable), eq(1), eq(1));
+    verifyNoMoreInteractions(observer);
+  }
+
+  @Test
+  public void removeRow_shouldShiftRows() {
+    itemTable.addRow("Title 0", "Summary 0");
+    itemTable.addRow("Title 1", "Summary 1");
+    itemTable.addRow("Title 2", "Summary 2");
+
+    itemTable.removeRow(1);
+
+    assertThat(itemTable.getCount()).isEqualTo(2);
+    assertThat(itemTable.getTitle(1).toString()).isEqualTo("Title 2");
+    assertThat(itemTable.getSummary(1).toString()).isEqualTo("Summary 2");
+    verify(observer).onItemRangeRemoved(eq(itemTable), eq(1), eq(1));
+  }
+
+  @Test
+  public void setTitle_shouldNotifyChange() {
+    itemTable.addRow("Title 0", "Summary 0");
+
+    itemTable.setTitle(0, "New title");
+
+    assertThat(itemTable.getTitle(0).toString()).isEqualTo("New title");
+    verify(observer).onItemRangeChanged(eq(itemTable), eq(0), eq(1));
+  }
+
+  @Test
+  public void clear_shouldRemoveAllRows() {
+    itemTable.addRow("Title 0", "Summary 0");
+    itemTable.addRow("Title 1", "Summary 1");
+
+    itemTable.clear();
+
+    assertThat(itemTable.getCount()).isEqualTo(0);
+    verify(observer).onItemRangeRemoved(eq(itemTable), eq(0), eq(2));
+  }
+
+  @Test
+  public void getItemAt_shouldReturnStableItemPerRowAndBindRow() {
+    itemTable.addRow(1234, "Title 0", "Summary 0", true, R.layout.suw_items_default);
+    itemTable.addRow(5678, "Title 1", null, false, R.layout.suw_items_default);
+
+    final IItem item0 = itemTable.getItemAt(0);
+    final IItem item1 = itemTable.getItemAt(1);
+    assertThat(item1).isNotSameAs(item0);
+    assertThat(itemTable.getItemAt(0)).isSameAs(item0);
+    assertThat(item0.isEnabled()).isTrue();
+    assertThat(((ItemTable.RowItem) item0).getId()).isEqualTo(1234);
+    assertThat(item1.isEnabled()).isFalse();
+    assertThat(((ItemTable.RowItem) item1).getId()).isEqualTo(5678);
+
+    final View view =
+        LayoutInflater.from(application).inflate(item1.getLayoutResource(), null);
+    item1.onBindView(view);
+
+    final TextView title = (TextView) view.findViewById(R.id.suw_items_title);
+    final TextView summary = (TextView) view.findViewById(R.id.suw_items_summary);
+    assertThat(title.getText().toString()).isEqualTo("Title 1");
+    assertThat(summary.getVisibility()).isEqualTo(View.GONE);
+    assertThat(view.getId()).isEqualTo(5678);
+  }
+
+  @Test
+  public void removeRow_shouldMoveItemWithRowAndDisableRemovedItem() {
+    itemTable.addRow(1234, "Title 0", "Summary 0", true, R.layout.suw_items_default);
+    itemTable.addRow(5678, "Title 1", "Summary 1", true, R.layout.suw_items_default);
+    final IItem item0 = itemTable.getItemAt(0);
+    final IItem item1 = itemTable.getItemAt(1);
+
+    itemTable.removeRow(0);
+
+    assertThat(item0.isEnabled()).isFalse();
+    assertThat(((ItemTable.RowItem) item0).getRow()).isEqualTo(-1);
+    assertThat(((ItemTable.RowItem) item1).getId()).isEqualTo(5678);
+    assertThat(((ItemTable.RowItem) item1).getRow()).isEqualTo(0);
+    assertThat(itemTable.getItemAt(0)).isSameAs(item1);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void getItemAt_outOfBounds_shouldThrow() {
+    itemTable.addRow("Title 0", "Summary 0");
+    itemTable.getItemAt(1);
+  }
+}
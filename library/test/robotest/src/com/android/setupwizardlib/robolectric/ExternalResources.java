@@ -77,8 +77,14 @@ public final class ExternalResources {
       this.packageName = packageName;
     }
 
+    /** @return The number of times {@link #getIdentifier} has been called. */
+    public int getIdentifierCount() {
+      return identifierCount;
+    }
+
     @Override
     public int getIdentifier(String name, String defType, String defPackage) {
+      identifierCount++;
       Integer resourceId = resourceIds.get(ResName.qualifyResName(name, defPackage, defType));
       if (resourceId == null) {
         return 0;
@@ -134,11 +140,16 @@ public final class ExternalResources {
     private final Map<Integer, TypedResource<?>> overrideResources = new HashMap<>();
     private final Map<ResName, Integer> resourceIds = new HashMap<>();
     private int nextId = 1;
+    private int identifierCount = 0;
 
     private <T> void put(ResName resName, TypedResource<T> value) {
-      int id = nextId++;
+      // Keep the ID of an existing resource, so that its value is replaced in place
+      Integer id = resourceIds.get(resName);
+      if (id == null) {
+        id = nextId++;
+        resourceIds.put(resName, id);
+      }
       overrideResources.put(id, value);
-      resourceIds.put(resName, id);
     }
 
     private Object get(@AnyRes int id, ResType type) {
@@ -20,16 +20,25 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.robolectric.RuntimeEnvironment.application;
 import static org.robolectric.Shadows.shadowOf;
 
+import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.ResolveInfo;
+import android.content.res.Configuration;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.AnyRes;
 import com.android.setupwizardlib.R;
 import com.android.setupwizardlib.robolectric.ExternalResources;
 import com.android.setupwizardlib.robolectric.ExternalResources.Resources;
 import com.android.setupwizardlib.util.Partner.ResourceEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -136,6 +145,186 @@ public class PartnerTest {
     assertThat(entry.isOverlay).isFalse();
   }
 
+  @Test
+  public void getColor_repeatedLookup_shouldLookUpIdentifierOnce() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+
+    Partner.getColor(application, R.color.suw_color_accent_dark);
+    final int color = Partner.getColor(application, R.color.suw_color_accent_dark);
+
+    assertThat(color).isEqualTo(0xffff00ff);
+    assertThat(partnerResources.getIdentifierCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void getResourceEntry_partnerValueAddedAfterLookup_shouldCacheMissingValue() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    Partner.getResourceEntry(application, R.color.suw_color_accent_dark);
+
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+
+    ResourceEntry entry = Partner.getResourceEntry(application, R.color.suw_color_accent_dark);
+    assertThat(entry.isOverlay).isFalse();
+  }
+
+  @Test
+  public void prefetch_shouldSearchOnExecutor() {
+    new PartnerPackageBuilder("test.partner.package").setDirectBootAware(true).injectResources();
+    final List<Runnable> tasks = new ArrayList<>();
+
+    Partner.prefetch(
+        application,
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            tasks.add(command);
+          }
+        });
+    assertThat(tasks).hasSize(1);
+    tasks.get(0).run();
+
+    Partner partner = Partner.get(application);
+    assertThat(partner).isNotNull();
+    assertThat(partner.getPackageName()).isEqualTo("test.partner.package");
+  }
+
+  @Test
+  public void prefetch_alreadySearched_shouldNotExecute() {
+    Partner.get(application);
+    final List<Runnable> tasks = new ArrayList<>();
+
+    Partner.prefetch(
+        application,
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            tasks.add(command);
+          }
+        });
+
+    assertThat(tasks).isEmpty();
+  }
+
+  @Test
+  public void preload_shouldServePartnerValuesFromMemory() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+
+    preload(R.color.suw_color_accent_dark, R.string.suw_next_button_label);
+    // Only returned by getColor if the partner resources are read again
+    partnerResources.putColor("suw_color_accent_dark", 0xff00ff00);
+
+    assertThat(Partner.getColor(application, R.color.suw_color_accent_dark))
+        .isEqualTo(0xffff00ff);
+    assertThat(Partner.getString(application, R.string.suw_next_button_label))
+        .isEqualTo(application.getString(R.string.suw_next_button_label));
+  }
+
+  @Test
+  public void preload_drawable_shouldReturnNewDrawableEachTime() {
+    preload(R.drawable.suw_glif_pattern_50);
+
+    final Drawable first = Partner.getDrawable(application, R.drawable.suw_glif_pattern_50);
+    final Drawable second = Partner.getDrawable(application, R.drawable.suw_glif_pattern_50);
+
+    assertThat(first).isInstanceOf(BitmapDrawable.class);
+    assertThat(second).isNotSameAs(first);
+    assertThat(((BitmapDrawable) second).getBitmap())
+        .isSameAs(((BitmapDrawable) first).getBitmap());
+  }
+
+  @Test
+  public void preload_configurationChanged_shouldNotServePreloadedValues() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+    preload(R.color.suw_color_accent_dark);
+    partnerResources.putColor("suw_color_accent_dark", 0xff00ff00);
+
+    final android.content.res.Resources resources = application.getResources();
+    final Configuration configuration = new Configuration(resources.getConfiguration());
+    configuration.fontScale += 1f;
+    resources.updateConfiguration(configuration, resources.getDisplayMetrics());
+
+    assertThat(Partner.getColor(application, R.color.suw_color_accent_dark))
+        .isEqualTo(0xff00ff00);
+  }
+
+  @Test
+  public void preload_contextWithDifferentScreenSize_shouldServePreloadedValues() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+    preload(R.color.suw_color_accent_dark);
+    partnerResources.putColor("suw_color_accent_dark", 0xff00ff00);
+
+    // An activity in multi-window has a different size than the application, but the same
+    // resource qualifiers
+    final Configuration configuration =
+        new Configuration(application.getResources().getConfiguration());
+    configuration.screenWidthDp = configuration.screenWidthDp / 2;
+    final Context activityContext = createContextWithConfiguration(configuration);
+
+    assertThat(Partner.getColor(activityContext, R.color.suw_color_accent_dark))
+        .isEqualTo(0xffff00ff);
+  }
+
+  @Test
+  public void preload_contextWithDifferentUiMode_shouldNotServePreloadedValues() {
+    final Resources partnerResources =
+        new PartnerPackageBuilder("test.partner.package").injectResources();
+    partnerResources.putColor("suw_color_accent_dark", 0xffff00ff);
+    preload(R.color.suw_color_accent_dark);
+    partnerResources.putColor("suw_color_accent_dark", 0xff00ff00);
+
+    final Configuration configuration =
+        new Configuration(application.getResources().getConfiguration());
+    final boolean night =
+        (configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+            == Configuration.UI_MODE_NIGHT_YES;
+    configuration.uiMode =
+        Configuration.UI_MODE_TYPE_NORMAL
+            | (night ? Configuration.UI_MODE_NIGHT_NO : Configuration.UI_MODE_NIGHT_YES);
+    final Context activityContext = createContextWithConfiguration(configuration);
+
+    assertThat(Partner.getColor(activityContext, R.color.suw_color_accent_dark))
+        .isEqualTo(0xff00ff00);
+  }
+
+  private static Context createContextWithConfiguration(Configuration configuration) {
+    final android.content.res.Resources appResources = application.getResources();
+    final android.content.res.Resources resources =
+        new android.content.res.Resources(
+            appResources.getAssets(), appResources.getDisplayMetrics(), configuration);
+    return new ContextWrapper(application) {
+      @Override
+      public android.content.res.Resources getResources() {
+        return resources;
+      }
+    };
+  }
+
+  private static void preload(@AnyRes int... ids) {
+    final List<Runnable> tasks = new ArrayList<>();
+    Partner.preload(
+        application,
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            tasks.add(command);
+          }
+        },
+        ids);
+    assertThat(tasks).hasSize(ids.length);
+    for (Runnable task : tasks) {
+      task.run();
+    }
+  }
+
   private static class PartnerPackageBuilder {
     private final String packageName;
     private final ResolveInfo resolveInfo;
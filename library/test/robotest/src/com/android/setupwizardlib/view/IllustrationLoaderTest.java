@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.BitmapDrawable;
+import com.android.setupwizardlib.R;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Config.OLDEST_SDK, Config.NEWEST_SDK})
+public class IllustrationLoaderTest {
+
+  @Test
+  public void getSampleSize_largerTarget_shouldNotSubsample() {
+    assertThat(IllustrationLoader.getSampleSize(1000, 1200)).isEqualTo(1);
+  }
+
+  @Test
+  public void getSampleSize_shouldKeepAtLeastTargetWidth() {
+    assertThat(IllustrationLoader.getSampleSize(1000, 500)).isEqualTo(2);
+    assertThat(IllustrationLoader.getSampleSize(1000, 501)).isEqualTo(1);
+    assertThat(IllustrationLoader.getSampleSize(2880, 720)).isEqualTo(4);
+    assertThat(IllustrationLoader.getSampleSize(2880, 700)).isEqualTo(4);
+  }
+
+  @Test
+  public void load_sameConfiguration_shouldReuseBitmap() {
+    final Resources res = application.getResources();
+    final BitmapDrawable first =
+        (BitmapDrawable) IllustrationLoader.load(res, R.drawable.suw_glif_pattern_50, 10);
+    final BitmapDrawable second =
+        (BitmapDrawable) IllustrationLoader.load(res, R.drawable.suw_glif_pattern_50, 10);
+
+    assertThat(second.getBitmap()).isSameAs(first.getBitmap());
+  }
+
+  @Test
+  public void load_configurationChanged_shouldDecodeAgain() {
+    final Resources res = application.getResources();
+    final BitmapDrawable portrait =
+        (BitmapDrawable) IllustrationLoader.load(res, R.drawable.suw_glif_pattern_50, 10);
+
+    final Configuration configuration = new Configuration(res.getConfiguration());
+    configuration.orientation =
+        configuration.orientation == Configuration.ORIENTATION_LANDSCAPE
+            ? Configuration.ORIENTATION_PORTRAIT
+            : Configuration.ORIENTATION_LANDSCAPE;
+    res.updateConfiguration(configuration, res.getDisplayMetrics());
+    final BitmapDrawable landscape =
+        (BitmapDrawable) IllustrationLoader.load(res, R.drawable.suw_glif_pattern_50, 10);
+
+    assertThat(landscape.getBitmap()).isNotSameAs(portrait.getBitmap());
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.RuntimeEnvironment.application;
+
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.widget.FrameLayout;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {Config.OLDEST_SDK, Config.NEWEST_SDK})
+public class IllustrationTest {
+
+  private CountingFrameLayout parent;
+  private Illustration illustration;
+
+  @Before
+  public void setUp() {
+    parent = new CountingFrameLayout();
+    illustration = new Illustration(application);
+    illustration.setAspectRatio(2.0f);
+    parent.addView(illustration);
+  }
+
+  @Test
+  public void testChangeWidth_shouldNotRequestAnotherLayoutPass() {
+    measureAndLayout(parent, 320, 480);
+    parent.requestLayoutCount = 0;
+
+    measureAndLayout(parent, 640, 480);
+
+    assertThat(illustration.getPaddingTop()).isGreaterThan(0);
+    assertThat(parent.requestLayoutCount).named("layout passes requested").isEqualTo(0);
+  }
+
+  @Test
+  public void testOverriddenPadding_shouldBeRestoredOnMeasure() {
+    measureAndLayout(parent, 320, 480);
+    final int paddingTop = illustration.getPaddingTop();
+
+    illustration.setPadding(0, 1, 0, 0);
+    measureAndLayout(parent, 320, 480);
+
+    assertThat(illustration.getPaddingTop()).isEqualTo(paddingTop);
+  }
+
+  private static void measureAndLayout(View view, int width, int height) {
+    view.measure(
+        MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+    view.layout(0, 0, width, height);
+  }
+
+  /** A parent view which counts the layout passes requested by its children. */
+  private static class CountingFrameLayout extends FrameLayout {
+
+    int requestLayoutCount = 0;
+
+    CountingFrameLayout() {
+      super(application);
+    }
+
+    @Override
+    public void requestLayout() {
+      requestLayoutCount++;
+      super.requestLayout();
+    }
+  }
+}
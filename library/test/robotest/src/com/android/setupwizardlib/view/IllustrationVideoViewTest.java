@@ -18,14 +18,17 @@ package com.android.setupwizardlib.view;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.robolectric.RuntimeEnvironment.application;
 
 import android.app.Activity;
 import android.graphics.SurfaceTexture;
+import android.media.MediaPlayer;
 import android.net.Uri;
 import androidx.annotation.RawRes;
 import android.view.View;
 import com.android.setupwizardlib.R;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,6 +66,11 @@ public class IllustrationVideoViewTest {
         new ShadowMediaPlayer.MediaInfo(100, 10));
   }
 
+  @After
+  public void tearDown() {
+    IllustrationVideoView.setPlayerPoolSize(0);
+  }
+
   @Test
   public void testPausedWhenWindowFocusLost() {
     createDefaultView();
@@ -200,6 +208,334 @@ public class IllustrationVideoViewTest {
         .isEqualTo("android.resource://" + newPackageName + "/" + android.R.color.white);
   }
 
+  @Test
+  public void setPlayerPoolSize_textureDestroyed_shouldKeepPlayerPrepared() {
+    IllustrationVideoView.setPlayerPoolSize(1);
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+
+    ShadowMediaPlayer shadowMediaPlayer = getShadowMediaPlayer();
+    view.onSurfaceTextureDestroyed(surfaceTexture);
+
+    assertThat(shadowMediaPlayer.getState()).isNotEqualTo(ShadowMediaPlayer.State.END);
+    assertThat(view.mMediaPlayer).isNull();
+  }
+
+  @Test
+  public void setPlayerPoolSize_newView_shouldReusePooledPlayer() {
+    IllustrationVideoView.setPlayerPoolSize(1);
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+    MediaPlayer mediaPlayer = view.mMediaPlayer;
+    view.onSurfaceTextureDestroyed(surfaceTexture);
+
+    createDefaultView();
+
+    assertThat(view.mMediaPlayer).isSameAs(mediaPlayer);
+    assertThat(view.isPrepared()).isTrue();
+  }
+
+  @Test
+  public void setPlayerPoolSize_pooledPlayerSeekCompletedWithoutFocus_shouldNotStart() {
+    IllustrationVideoView.setPlayerPoolSize(1);
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+    view.onSurfaceTextureDestroyed(surfaceTexture);
+    createDefaultView();
+    view.onWindowFocusChanged(false);
+    setWindowFocus(false);
+
+    // The seek to the start issued when the player was recycled completes
+    view.onSeekComplete(view.mMediaPlayer);
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.PAUSED);
+  }
+
+  @Test
+  public void setPlayerPoolSize_pooledPlayerFailed_shouldCreateNewPlayer() {
+    IllustrationVideoView.setPlayerPoolSize(1);
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+    MediaPlayer mediaPlayer = view.mMediaPlayer;
+    view.onSurfaceTextureDestroyed(surfaceTexture);
+    ShadowMediaPlayer shadowMediaPlayer = Shadows.shadowOf(mediaPlayer);
+    shadowMediaPlayer.invokeErrorListener(MediaPlayer.MEDIA_ERROR_SERVER_DIED, 0);
+
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+
+    assertThat(view.mMediaPlayer).isNotSameAs(mediaPlayer);
+    assertThat(shadowMediaPlayer.getState()).isEqualTo(ShadowMediaPlayer.State.END);
+    assertThat(view.isPrepared()).isTrue();
+  }
+
+  @Test
+  public void prepareVideo_shouldBePreparedWhenSurfaceAvailable() {
+    IllustrationVideoView.setPlayerPoolSize(1);
+    IllustrationVideoView.prepareVideo(
+        application, android.R.color.white, application.getPackageName());
+    Robolectric.flushForegroundThreadScheduler();
+
+    createDefaultView();
+
+    assertThat(view.isPrepared()).isTrue();
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.STARTED);
+  }
+
+  @Test
+  public void prepareVideo_poolDisabled_shouldNotPrepare() {
+    IllustrationVideoView.prepareVideo(
+        application, android.R.color.white, application.getPackageName());
+    Robolectric.flushForegroundThreadScheduler();
+
+    createDefaultView();
+
+    assertThat(view.isPrepared()).isFalse();
+  }
+
+  @Test
+  public void setPosterEnabled_cachedMetadata_shouldSetAspectRatioBeforePrepared() {
+    VideoPosterCache.putMetadata(
+        android.R.color.white,
+        application.getPackageName(),
+        new VideoPosterCache.Metadata(1280, 720, 0, 0));
+    createDefaultView();
+
+    view.setPosterEnabled(true);
+    view.measure(
+        View.MeasureSpec.makeMeasureSpec(1280, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(1280, View.MeasureSpec.EXACTLY));
+
+    assertThat(view.isPrepared()).isFalse();
+    final float aspectRatio = (float) view.getMeasuredHeight() / view.getMeasuredWidth();
+    assertThat(aspectRatio).isWithin(0.001f).of(720f / 1280f);
+  }
+
+  @Test
+  public void setVideoVariants_shouldPlaySmallestVariantCoveringView() {
+    view = new IllustrationVideoView(application, Robolectric.buildAttributeSet().build());
+    view.setVideoVariants(
+        new int[] {android.R.color.white, android.R.color.black},
+        new int[] {100, 10000},
+        application.getPackageName());
+
+    view.measure(
+        View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+    attachView();
+
+    assertThat(getShadowMediaPlayer().getSourceUri().toString())
+        .isEqualTo("android.resource://com.android.setupwizardlib/" + android.R.color.black);
+  }
+
+  @Test
+  public void setVideoVariants_noVariantCoversView_shouldPlayLargestVariant() {
+    view = new IllustrationVideoView(application, Robolectric.buildAttributeSet().build());
+    view.setVideoVariants(
+        new int[] {android.R.color.black, android.R.color.white},
+        new int[] {50, 100},
+        application.getPackageName());
+
+    view.measure(
+        View.MeasureSpec.makeMeasureSpec(2000, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(2000, View.MeasureSpec.EXACTLY));
+    attachView();
+
+    assertThat(getShadowMediaPlayer().getSourceUri().toString())
+        .isEqualTo("android.resource://com.android.setupwizardlib/" + android.R.color.white);
+  }
+
+  @Test
+  public void setVideoVariants_nullPackage_shouldUseContextPackage() {
+    view = new IllustrationVideoView(application, Robolectric.buildAttributeSet().build());
+    view.setVideoVariants(new int[] {android.R.color.white}, new int[] {500}, null);
+
+    view.measure(
+        View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY));
+    attachView();
+
+    assertThat(getShadowMediaPlayer().getSourceUri().toString())
+        .isEqualTo("android.resource://com.android.setupwizardlib/" + android.R.color.white);
+  }
+
+  @Test
+  public void setVideoResource_afterVariants_shouldIgnoreVariants() {
+    view = new IllustrationVideoView(application, Robolectric.buildAttributeSet().build());
+    view.setVideoVariants(
+        new int[] {android.R.color.black}, new int[] {500}, application.getPackageName());
+    view.setVideoResource(android.R.color.white);
+
+    view.measure(
+        View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY));
+    attachView();
+
+    assertThat(getShadowMediaPlayer().getSourceUri().toString())
+        .isEqualTo("android.resource://com.android.setupwizardlib/" + android.R.color.white);
+  }
+
+  @Test
+  public void scrolledOffScreen_shouldPause() {
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+    view.start();
+
+    view.setTranslationY(100000);
+    view.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.PAUSED);
+  }
+
+  @Test
+  public void scrolledBackOnScreen_shouldResume() {
+    scrolledOffScreen_shouldPause();
+    setWindowFocus(true);
+
+    view.setTranslationY(0);
+    view.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.STARTED);
+  }
+
+  @Test
+  public void scrolledBackOnScreen_noWindowFocus_shouldStayPaused() {
+    scrolledOffScreen_shouldPause();
+    setWindowFocus(false);
+
+    view.setTranslationY(0);
+    view.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.PAUSED);
+  }
+
+  @Test
+  public void seekCompleted_offScreen_shouldStayPaused() {
+    scrolledOffScreen_shouldPause();
+    setWindowFocus(true);
+
+    view.onSeekComplete(view.mMediaPlayer);
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.PAUSED);
+  }
+
+  @Test
+  public void setVisibilityThreshold_partiallyOnScreen_shouldPause() {
+    createDefaultView();
+    Robolectric.flushForegroundThreadScheduler();
+    view.start();
+
+    view.setVisibilityThreshold(0.75f);
+    view.setTranslationY(-view.getHeight() / 2f);
+    view.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.PAUSED);
+  }
+
+  @Test
+  public void setVideoSegments_introCompleted_shouldStartLoopVideo() {
+    createDefaultView();
+    view.setVideoSegments(
+        android.R.color.white, android.R.color.black, application.getPackageName());
+    Robolectric.flushForegroundThreadScheduler();
+    MediaPlayer intro = view.mMediaPlayer;
+    assertThat(intro.isLooping()).isFalse();
+    Robolectric.flushForegroundThreadScheduler();
+
+    view.onCompletion(intro);
+
+    assertThat(view.mMediaPlayer).isNotSameAs(intro);
+    assertThat(getShadowMediaPlayer().getSourceUri().toString())
+        .isEqualTo("android.resource://com.android.setupwizardlib/" + android.R.color.black);
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.STARTED);
+    assertThat(view.mMediaPlayer.isLooping()).isTrue();
+  }
+
+  @Test
+  public void setLoopStartMs_completed_shouldSwapToPreparedPlayer() {
+    createDefaultView();
+    view.setLoopStartMs(50);
+    Robolectric.flushForegroundThreadScheduler();
+    MediaPlayer first = view.mMediaPlayer;
+    assertThat(first.isLooping()).isFalse();
+    Robolectric.flushForegroundThreadScheduler();
+
+    view.onCompletion(first);
+
+    assertThat(view.mMediaPlayer).isNotSameAs(first);
+    assertThat(getShadowMediaPlayer().getState()).isEqualTo(ShadowMediaPlayer.State.STARTED);
+    assertThat(view.mMediaPlayer.isLooping()).isFalse();
+  }
+
+  @Test
+  public void setPlaybackStatsListener_firstFrame_shouldReportStats() {
+    createDefaultView();
+    final VideoPlaybackStats[] reported = new VideoPlaybackStats[1];
+    view.setPlaybackStatsListener(
+        new IllustrationVideoView.PlaybackStatsListener() {
+          @Override
+          public void onPlaybackStats(VideoPlaybackStats stats) {
+            reported[0] = stats;
+          }
+        });
+    Robolectric.flushForegroundThreadScheduler();
+
+    view.onInfo(view.mMediaPlayer, MediaPlayer.MEDIA_INFO_BUFFERING_START, 0);
+    view.onInfo(view.mMediaPlayer, MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START, 0);
+
+    assertThat(reported[0]).isNotNull();
+    assertThat(reported[0].getTimeToPreparedMs()).isAtLeast(0L);
+    assertThat(reported[0].getTimeToFirstFrameMs()).isAtLeast(0L);
+    assertThat(reported[0].getRebufferCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void getPlaybackStats_error_shouldCountError() {
+    createDefaultView();
+
+    view.onError(view.mMediaPlayer, MediaPlayer.MEDIA_ERROR_UNKNOWN, 0);
+
+    assertThat(view.getPlaybackStats().getErrorCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void getPlaybackStats_gapInFrameTimestamps_shouldEstimateDroppedFrames() {
+    createDefaultView();
+    final long frameIntervalNs = 33_000_000L;
+    when(surfaceTexture.getTimestamp())
+        .thenReturn(0L, frameIntervalNs, 2 * frameIntervalNs, 5 * frameIntervalNs);
+    view.onInfo(view.mMediaPlayer, MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START, 0);
+
+    for (int i = 0; i < 4; i++) {
+      view.onSurfaceTextureUpdated(surfaceTexture);
+    }
+
+    final VideoPlaybackStats stats = view.getPlaybackStats();
+    assertThat(stats.getRenderedFrameCount()).isEqualTo(4);
+    assertThat(stats.getDroppedFrameEstimate()).isEqualTo(2);
+  }
+
+  @Test
+  public void getPlaybackStats_posterFrame_shouldNotCountPosterFrame() {
+    createDefaultView();
+    final long frameIntervalNs = 33_000_000L;
+    final long videoStartNs = 2_000_000_000L;
+    when(surfaceTexture.getTimestamp())
+        .thenReturn(
+            0L, videoStartNs, videoStartNs + frameIntervalNs, videoStartNs + 2 * frameIntervalNs);
+
+    // The poster is drawn long before the video starts rendering
+    view.onSurfaceTextureUpdated(surfaceTexture);
+    view.onInfo(view.mMediaPlayer, MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START, 0);
+    for (int i = 0; i < 3; i++) {
+      view.onSurfaceTextureUpdated(surfaceTexture);
+    }
+
+    final VideoPlaybackStats stats = view.getPlaybackStats();
+    assertThat(stats.getRenderedFrameCount()).isEqualTo(3);
+    assertThat(stats.getDroppedFrameEstimate()).isEqualTo(0);
+  }
+
   private ShadowMediaPlayer getShadowMediaPlayer() {
     return Shadows.shadowOf(view.mMediaPlayer);
   }
@@ -212,7 +548,10 @@ public class IllustrationVideoViewTest {
                 // Any resource attribute should work, since the data source is fake
                 .addAttribute(R.attr.suwVideo, "@android:color/white")
                 .build());
+    attachView();
+  }
 
+  private void attachView() {
     Activity activity = Robolectric.setupActivity(Activity.class);
     activity.setContentView(view);
     setWindowVisible();
@@ -230,6 +569,12 @@ public class IllustrationVideoViewTest {
     assertThat(view.getWindowVisibility()).isEqualTo(View.VISIBLE);
   }
 
+  private void setWindowFocus(boolean hasWindowFocus) {
+    Object attachInfo = ReflectionHelpers.getField(view, "mAttachInfo");
+    ReflectionHelpers.setField(attachInfo, "mHasWindowFocus", hasWindowFocus);
+    assertThat(view.hasWindowFocus()).isEqualTo(hasWindowFocus);
+  }
+
   private void addMediaInfo(@RawRes int res, String packageName) {
     ShadowMediaPlayer.addMediaInfo(
         DataSource.toDataSource(
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib.view;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.media.MediaMetadataRetriever;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import java.io.FileDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Config.NEWEST_SDK)
+public class VideoResourcesTest {
+
+  private static final String PACKAGE_NAME = "com.android.setupwizardlib.test";
+  private static final String OTHER_PACKAGE_NAME = "com.android.setupwizardlib.partner";
+  private static final int RES_ID = 0x7f0a0001;
+
+  private final FileDescriptor fileDescriptor = new FileDescriptor();
+
+  @Mock private Context context;
+  @Mock private Resources resources;
+  @Mock private PackageManager packageManager;
+  @Mock private AssetFileDescriptor descriptor;
+  @Mock private MediaPlayer mediaPlayer;
+  @Mock private MediaMetadataRetriever retriever;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(context.getPackageName()).thenReturn(PACKAGE_NAME);
+    when(context.getResources()).thenReturn(resources);
+    when(context.getPackageManager()).thenReturn(packageManager);
+    when(descriptor.getFileDescriptor()).thenReturn(fileDescriptor);
+    when(descriptor.getStartOffset()).thenReturn(1024L);
+    when(descriptor.getLength()).thenReturn(4096L);
+  }
+
+  @After
+  public void tearDown() {
+    VideoResources.resetForTesting();
+  }
+
+  @Test
+  public void setDataSource_rawResourceFd_shouldSetFileDescriptor() throws Exception {
+    when(resources.openRawResourceFd(RES_ID)).thenReturn(descriptor);
+
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, PACKAGE_NAME);
+
+    verify(mediaPlayer).setDataSource(fileDescriptor, 1024L, 4096L);
+  }
+
+  @Test
+  public void setDataSource_retriever_shouldSetFileDescriptor() {
+    when(resources.openRawResourceFd(RES_ID)).thenReturn(descriptor);
+
+    VideoResources.setDataSource(retriever, context, RES_ID, PACKAGE_NAME);
+
+    verify(retriever).setDataSource(fileDescriptor, 1024L, 4096L);
+  }
+
+  @Test
+  public void setDataSource_sameVideoTwice_shouldReuseDescriptor() throws Exception {
+    when(resources.openRawResourceFd(RES_ID)).thenReturn(descriptor);
+
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, PACKAGE_NAME);
+    VideoResources.setDataSource(retriever, context, RES_ID, PACKAGE_NAME);
+
+    verify(resources, times(1)).openRawResourceFd(RES_ID);
+    verify(retriever).setDataSource(fileDescriptor, 1024L, 4096L);
+    verify(descriptor, never()).close();
+  }
+
+  @Test
+  public void setDataSource_otherPackage_shouldUsePackageResources() throws Exception {
+    final Resources otherResources = mock(Resources.class);
+    when(packageManager.getResourcesForApplication(OTHER_PACKAGE_NAME))
+        .thenReturn(otherResources);
+    when(otherResources.openRawResourceFd(RES_ID)).thenReturn(descriptor);
+
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, OTHER_PACKAGE_NAME);
+
+    verify(mediaPlayer).setDataSource(fileDescriptor, 1024L, 4096L);
+  }
+
+  @Test
+  public void setDataSource_notFound_shouldFallBackToUri() throws Exception {
+    when(resources.openRawResourceFd(RES_ID)).thenThrow(new Resources.NotFoundException());
+
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, PACKAGE_NAME);
+
+    verify(mediaPlayer)
+        .setDataSource(
+            context, Uri.parse("android.resource://" + PACKAGE_NAME + "/" + RES_ID), null);
+    verify(mediaPlayer, never()).setDataSource(any(FileDescriptor.class), anyLong(), anyLong());
+  }
+
+  @Test
+  public void setDataSource_compressedVideo_shouldFallBackToUri() {
+    when(resources.openRawResourceFd(RES_ID)).thenReturn(null);
+
+    VideoResources.setDataSource(retriever, context, RES_ID, PACKAGE_NAME);
+
+    verify(retriever)
+        .setDataSource(context, Uri.parse("android.resource://" + PACKAGE_NAME + "/" + RES_ID));
+  }
+
+  @Test
+  public void setDataSource_packageNotFound_shouldFallBackToUri() throws Exception {
+    when(packageManager.getResourcesForApplication(OTHER_PACKAGE_NAME))
+        .thenThrow(new NameNotFoundException());
+
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, OTHER_PACKAGE_NAME);
+
+    verify(mediaPlayer)
+        .setDataSource(
+            context, Uri.parse("android.resource://" + OTHER_PACKAGE_NAME + "/" + RES_ID), null);
+  }
+
+  @Test
+  public void resetForTesting_shouldCloseDescriptors() throws Exception {
+    when(resources.openRawResourceFd(RES_ID)).thenReturn(descriptor);
+    VideoResources.setDataSource(mediaPlayer, context, RES_ID, PACKAGE_NAME);
+
+    VideoResources.resetForTesting();
+
+    verify(descriptor).close();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.setupwizardlib;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.imageio.ImageIO;
+
+/**
+ * Host tool which rasterizes the path data in {@link GlifPatternPaths} into the pre-rendered
+ * pattern drawables used by {@code GlifPatternDrawable.setPrerenderedPatternEnabled}. This is the
+ * same rendering as {@code GlifPatternDrawable.renderOnCanvas}, done with Java2D instead of Skia.
+ *
+ * <p>Each image is white, with the lightness of the pattern stored in its alpha channel, so that
+ * the alpha channel can be extracted into the same ALPHA_8 mask the drawable renders at runtime.
+ * The images are written to {@code drawable-nodpi}, one per scale of the viewbox, and {@link
+ * GlifPatternPaths#VERSION} is written to {@code values/glif_pattern.xml}, so that the drawable can
+ * tell whether the images are up to date.
+ *
+ * <p>Usage: {@code GlifPatternRasterizer <res directory>}
+ */
+public class GlifPatternRasterizer {
+
+  private static final String FILE_NAME_PREFIX = "suw_glif_pattern_";
+
+  // Scales of the viewbox rendered, in percent. The drawable scales the pattern up to at most 1.5x,
+  // so there is no point in rendering a larger image.
+  private static final int[] SCALES = {50, 75, 100, 150};
+
+  private static final String XML_LICENSE =
+      "<!--\n"
+          + "    Copyright (C) 2018 The Android Open Source Project\n"
+          + "\n"
+          + "    Licensed under the Apache License, Version 2.0 (the \"License\");\n"
+          + "    you may not use this file except in compliance with the License.\n"
+          + "    You may obtain a copy of the License at\n"
+          + "\n"
+          + "         http://www.apache.org/licenses/LICENSE-2.0\n"
+          + "\n"
+          + "    Unless required by applicable law or agreed to in writing, software\n"
+          + "    distributed under the License is distributed on an \"AS IS\" BASIS,\n"
+          + "    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n"
+          + "    See the License for the specific language governing permissions and\n"
+          + "    limitations under the License.\n"
+          + "-->\n";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: GlifPatternRasterizer <res directory>");
+      System.exit(1);
+    }
+    final File resDir = new File(args[0]);
+    final File drawableDir = makeDirectory(new File(resDir, "drawable-nodpi"));
+    for (int scale : SCALES) {
+      final File file = new File(drawableDir, FILE_NAME_PREFIX + scale + ".png");
+      ImageIO.write(rasterize(scale / 100f), "png", file);
+      System.out.println("Wrote " + file);
+    }
+    final File valuesDir = makeDirectory(new File(resDir, "values"));
+    final File versionFile = new File(valuesDir, "glif_pattern.xml");
+    writeVersion(versionFile);
+    System.out.println("Wrote " + versionFile);
+  }
+
+  private static File makeDirectory(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Unable to create directory " + dir);
+    }
+    return dir;
+  }
+
+  private static void writeVersion(File file) throws IOException {
+    final Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+    try {
+      writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+      writer.write(XML_LICENSE);
+      writer.write("\n<!-- Generated by GlifPatternRasterizer. Do not edit. -->\n");
+      writer.write("<resources>\n");
+      writer.write("    <!-- GlifPatternPaths.VERSION of the suw_glif_pattern_* drawables -->\n");
+      writer.write(
+          "    <integer name=\"suw_glif_pattern_version\">"
+              + GlifPatternPaths.VERSION
+              + "</integer>\n");
+      writer.write("</resources>\n");
+    } finally {
+      writer.close();
+    }
+  }
+
+  static BufferedImage rasterize(float scale) {
+    final int width = (int) (GlifPatternPaths.VIEWBOX_WIDTH * scale);
+    final int height = (int) (GlifPatternPaths.VIEWBOX_HEIGHT * scale);
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      // Each path replaces the paths behind it, like PorterDuff.Mode.SRC in the drawable
+      graphics.setComposite(AlphaComposite.Src);
+      graphics.scale(scale, scale);
+      for (int i = 0; i < GlifPatternPaths.PATHS.length; i++) {
+        graphics.setColor(new Color(255, 255, 255, GlifPatternPaths.LIGHTNESS[i]));
+        graphics.fill(buildPath(GlifPatternPaths.PATHS[i]));
+      }
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private static Path2D buildPath(String pathData) {
+    final Path2D.Float path = new Path2D.Float();
+    GlifPatternPaths.buildPath(
+        pathData,
+        new GlifPatternPaths.PathBuilder() {
+          @Override
+          public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+          }
+
+          @Override
+          public void rMoveTo(float dx, float dy) {
+            final Point2D current = currentPoint();
+            path.moveTo(current.getX() + dx, current.getY() + dy);
+          }
+
+          @Override
+          public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+          }
+
+          @Override
+          public void rLineTo(float dx, float dy) {
+            final Point2D current = currentPoint();
+            path.lineTo(current.getX() + dx, current.getY() + dy);
+          }
+
+          @Override
+          public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            path.curveTo(x1, y1, x2, y2, x3, y3);
+          }
+
+          @Override
+          public void rCubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            final Point2D current = currentPoint();
+            final double x = current.getX();
+            final double y = current.getY();
+            path.curveTo(x + x1, y + y1, x + x2, y + y2, x + x3, y + y3);
+          }
+
+          @Override
+          public void close() {
+            path.closePath();
+          }
+
+          private Point2D currentPoint() {
+            final Point2D current = path.getCurrentPoint();
+            return current != null ? current : new Point2D.Float();
+          }
+        });
+    return path;
+  }
+}